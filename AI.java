@@ -1,11 +1,15 @@
 package jumpCube;
 
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.ArrayList;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static jumpCube.Color.*;
+import static jumpCube.TranspositionTable.*;
 
 /** An automated Player.
  *  @author Brian Ha
@@ -17,142 +21,753 @@ class AI extends Player {
      */
     AI(Game game, Color color) {
         super(game, color);
+        _table = new TranspositionTable(Defaults.TT_BITS);
+        _maxDepth = Defaults.DEPTH;
+        _timeBudget = Defaults.TIME_BUDGET;
+        _threads = Defaults.THREADS;
+        _evaluator = new Evaluator();
+        _endgameSquares = Defaults.ENDGAME_SQUARES;
+        _solverNodes = Defaults.SOLVER_NODES;
+    }
+
+    /** Limit my searches to at most DEPTH plies (1 <= DEPTH < 64). */
+    void setDepth(int depth) {
+        assert depth >= 1 && depth < MAX_PLY;
+        _maxDepth = depth;
+    }
+
+    /** Allow myself MILLIS milliseconds to choose each move.  A search of
+     *  depth 1 is always completed, whatever the budget. */
+    void setTimeBudget(long millis) {
+        _timeBudget = millis;
+    }
+
+    /** Search using THREADS threads (THREADS >= 1). */
+    void setThreads(int threads) {
+        assert threads >= 1;
+        if (threads != _threads && _pool != null) {
+            stopPondering();
+            _pool.shutdown();
+            _pool = null;
+            _workers.clear();
+            synchronized (_searchers) {
+                _searchers.clear();
+                if (_main != null) {
+                    _searchers.add(_main);
+                }
+            }
+        }
+        _threads = threads;
+    }
+
+    /** Try to solve positions in which at most SQUARES squares are not
+     *  held by the player holding the most, with a proof-number search
+     *  of at most NODES positions, before searching them (never, if
+     *  SQUARES <= 0). */
+    void setSolver(int squares, int nodes) {
+        assert squares <= 0 || nodes >= 1;
+        if (_solver != null && nodes != _solverNodes) {
+            _solver = null;
+        }
+        _endgameSquares = squares;
+        _solverNodes = nodes;
+    }
+
+    /** Value leaf positions with EVALUATOR. */
+    void setEvaluator(Evaluator evaluator) {
+        _evaluator = evaluator;
+    }
+
+    /** Play the moves in BOOK, when it has one, instead of searching;
+     *  no book if BOOK is null. */
+    void setOpeningBook(OpeningBook book) {
+        _book = book;
+    }
+
+    /** Returns the statistics of my last search.  For a move found by
+     *  the endgame solver, the depth is 0 and the nodes are those the
+     *  solver expanded. */
+    SearchStats lastStats() {
+        return _stats;
+    }
+
+    /** Returns the value, to the player to move, of the move chosen by
+     *  the deepest search that my last search completed. */
+    int lastScore() {
+        return _lastScore;
+    }
+
+    /** Forget the results of all previous searches. */
+    void clearTable() {
+        _table.clear();
     }
 
     @Override
     void makeMove() {
         Game game = getGame();
-        BestMove b = minmax(game.getBoard().whoseMove(), Defaults.DEPTH);
-        int[] temp  = b.getMyMove();
-        game.makeMove(temp[0], temp[1]);
+        Board board = game.getMBoard();
+        int move = findMove(board, board.whoseMove());
+        game.makeMove(board.row(move), board.col(move));
     }
 
-    /** Return the BestMove that represents the best move THIS can
-     * make. This has Color C and calculates the move based on
-     * DEPTH. 
-     */
-    private BestMove minmax(Color c, int depth) {
-        Game game = getGame();
-        BestMove bestSoFar = new BestMove();
-        Board start = game.getMBoard();
-        if (start.getWinner() == c) {
-            bestSoFar.setMyScore(Integer.MAX_VALUE);
-            return bestSoFar;
-        } else if (start.getWinner() == opposite(c)) {
-            bestSoFar.setMyScore(Integer.MIN_VALUE);
-            return bestSoFar;
-        } else if (depth == 0) {
-            return guessBestMove(c, start);
-        }
-        BestMove reply;
-        if (c == start.whoseMove()) {
-            bestSoFar.setMyScore(Integer.MIN_VALUE);
-        } else {
-            bestSoFar.setMyScore(Integer.MAX_VALUE);
-        }
-        int n = start.size();
-        ArrayList<Integer> arr = new ArrayList<Integer>();
-        for (int i = 0; i < n * n; i++) {
-            if (start.isLegal(c, i)) {
-                arr.add(i);
-            }
-        }
-        boolean boo = true;
-        Iterator legalMoves = arr.iterator();
-        while (legalMoves.hasNext()) {
-            int mo = (Integer) legalMoves.next();
-            int[] move = {start.row(mo), start.col(mo)};
-            if (boo) {
-                boo = false;
-                bestSoFar.setMyMove(move);
-            }
-            start.addSpot(c, move[0], move[1]);
-            reply = minmax(opposite(c), depth - 1);
-            start.undo();
-            if ((c == start.whoseMove() && reply.getMyScore()
-                 > bestSoFar.getMyScore())
-                || (c == opposite(start.whoseMove())
-                    && reply.getMyScore()
-                    < bestSoFar.getMyScore())) {
-                bestSoFar.setMyMove(move);
-                bestSoFar.setMyScore(reply.getMyScore());
-            }
-        }
-        return bestSoFar;
-    }
-
-    /** Return the opposite color of the input Color C. */
-    private Color opposite(Color c) {
-        if (c == RED) {
-            return BLUE;
-        } else {
-            return RED;
+    /** Return the square number of the best move for C on BOARD0.
+     *  Searches to depths 1, 2, ... until the time budget or the depth
+     *  limit is reached, and returns the choice of the last search that
+     *  was completed.  If I have been pondering this position, uses the
+     *  result of that search, if it has had as much time as I have, and
+     *  otherwise searches for the rest of my time.  Positions in my
+     *  opening book are not searched at all.  In the endgame, first
+     *  spends up to half my time trying to prove a win or loss; a proven
+     *  win is played at once, as is, when every move loses, the move my
+     *  evaluation likes best.  Leaves BOARD0 unchanged. */
+    int findMove(Board board0, Color c) {
+        long budget = _timeBudget * 1000000L;
+        stopPondering();
+        if (_book != null) {
+            int move = _book.lookup(board0, c);
+            if (move >= 0) {
+                _ponderMove = -1;
+                _bookMoves += 1;
+                _stats.clear();
+                _stats.finish(0, 0);
+                return move;
+            }
+        }
+        if (_ponderMove >= 0 && _ponderKey == Zobrist.position(board0, c)) {
+            _ponderHits += 1;
+            if (_ponderNanos >= budget) {
+                _ponderMove = -1;
+                return _ponderResult;
+            }
+            budget -= _ponderNanos;
+        }
+        _ponderMove = -1;
+        if (endgame(board0)) {
+            long start = System.nanoTime();
+            int move = solve(board0, c, start + budget / 2);
+            if (move >= 0) {
+                _stats.clear();
+                _stats.countNodes(_solver.nodes());
+                _stats.finish(0, System.nanoTime() - start);
+                return move;
+            }
+            budget -= System.nanoTime() - start;
         }
+        _stopped = false;
+        return search(board0, c, System.nanoTime() + budget);
     }
 
-    /** Returns the guess of the BestMove from C and START. */
-    private BestMove guessBestMove(Color c, Board start) {
-        BestMove bm = new BestMove();
-        int n = start.size();
-        HashMap hm = new HashMap();
-        for (int i = 0; i < n * n; i++) {
-            if (start.isLegal(c, i)) {
-                start.addSpot(c, i);
-                int temp = start.numOfColor(c) - start.numOfColor(opposite(c));
-                hm.put(i, temp);
-                start.undo();
+    /** Start searching, on another thread, for my reply to the move of C
+     *  on BOARD that I expect, so that findMove can use the result if
+     *  that move is made.  The search continues until stopPondering or
+     *  findMove is called, or until it reaches my depth limit.  Leaves
+     *  BOARD unchanged. */
+    void ponder(Board board, Color c) {
+        stopPondering();
+        Board position = copy(board);
+        int guess = predict(position, c);
+        if (guess < 0) {
+            return;
+        }
+        position.addSpot(c, guess);
+        if (position.getWinner() != null) {
+            return;
+        }
+        Color me = c.opposite();
+        _ponderMove = guess;
+        _ponderKey = Zobrist.position(position, me);
+        _ponderResult = -1;
+        _stopped = false;
+        _ponderThread = new Thread(() -> {
+                long start = System.nanoTime();
+                _ponderResult = search(position, me, Long.MAX_VALUE);
+                _ponderNanos = System.nanoTime() - start;
+            }, "ponder");
+        _ponderThread.setDaemon(true);
+        _ponderThread.start();
+    }
+
+    /** Stop any search started by ponder, keeping its result for
+     *  findMove. */
+    void stopPondering() {
+        if (_ponderThread == null) {
+            return;
+        }
+        _stopped = true;
+        boolean interrupted = false;
+        while (_ponderThread.isAlive()) {
+            try {
+                _ponderThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
             }
         }
-        Iterator ite = hm.entrySet().iterator();
-        int tempSq = 0;
-        int tempF = Integer.MIN_VALUE;
-        while (ite.hasNext()) {
-            Map.Entry pair = (Map.Entry) ite.next();
-            int sqN = (Integer) pair.getKey();
-            int factor = (Integer) pair.getValue();
-            if (factor >= tempF) {
-                tempSq = sqN;
-                tempF = factor;
+        _ponderThread = null;
+        if (_ponderResult < 0) {
+            _ponderMove = -1;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Returns the number of times findMove was called on the position
+     *  I had been pondering. */
+    int ponderHits() {
+        return _ponderHits;
+    }
+
+    /** Returns true iff BOARD is an endgame: one player holds all but
+     *  at most _endgameSquares squares, which are less than half the
+     *  board.  (On smaller boards, that would be most of the game.) */
+    private boolean endgame(Board board) {
+        int squares = board.size() * board.size();
+        if (_endgameSquares <= 0 || squares <= 2 * _endgameSquares) {
+            return false;
+        }
+        int held = Math.max(board.numOfColor(Color.RED),
+                            board.numOfColor(Color.BLUE));
+        return squares - held <= _endgameSquares;
+    }
+
+    /** Try, until DEADLINE, to prove the outcome of BOARD with C to move.
+     *  Returns a winning move if C can force a win, the move my
+     *  evaluation prefers if C must lose, and otherwise -1. */
+    private int solve(Board board, Color c, long deadline) {
+        if (_solver == null) {
+            _solver = new ProofNumberSolver(_solverNodes);
+        }
+        Board position = copy(board);
+        switch (_solver.solve(position, c, deadline)) {
+        case ProofNumberSolver.WIN:
+            _solvedWins += 1;
+            return _solver.bestMove();
+        case ProofNumberSolver.LOSS:
+            _solvedLosses += 1;
+            return predict(position, c);
+        default:
+            return -1;
+        }
+    }
+
+    /** Returns the number of moves findMove chose after proving a win
+     *  (if WINS) or a loss (otherwise). */
+    int solvedMoves(boolean wins) {
+        return wins ? _solvedWins : _solvedLosses;
+    }
+
+    /** Returns the number of moves I have taken from my opening book. */
+    int bookMoves() {
+        return _bookMoves;
+    }
+
+    /** Returns the move I expect C to make on BOARD: the best move found
+     *  by an earlier search, if I have one, and otherwise the one that
+     *  leaves C's position best according to my evaluation.  Returns -1
+     *  if C has no moves. */
+    private int predict(Board board, Color c) {
+        long entry = _table.probe(Zobrist.position(board, c));
+        if (entry != MISSING && move(entry) >= 0
+            && board.isLegal(c, move(entry))) {
+            return move(entry);
+        }
+        int size = board.size();
+        int[] moves = new int[size * size];
+        int count = board.legalMoves(c, moves);
+        int best = -1;
+        int bestValue = -INFINITY;
+        for (int k = 0; k < count; k += 1) {
+            board.addSpot(c, moves[k]);
+            int value = _evaluator.evaluate(board, c);
+            if (board.getWinner() == c) {
+                value = WINNING_VALUE;
+            }
+            board.undo();
+            if (value > bestValue) {
+                bestValue = value;
+                best = moves[k];
             }
         }
-        int[] mo = {start.row(tempSq), start.col(tempSq)};
-        bm.setMyMove(mo);
-        bm.setMyScore(tempF);
-        return bm;
+        return best;
     }
 
-    /** Object representation of a BestMove that the current player
-     * can make. 
-     */
-    private class BestMove {
+    /** Return the square number of the best move for C on BOARD0, found
+     *  by searching to depths 1, 2, ... until DEADLINE (a value of
+     *  System.nanoTime), the depth limit, or a call of stopPondering, and
+     *  returns the choice of the last search that was completed (-1 if
+     *  none was).  Leaves BOARD0 unchanged. */
+    private int search(Board board0, Color c, long deadline) {
+        long start = System.nanoTime();
+        Board board = useBitBoard(board0) ? new BitBoard(board0) : board0;
+        _deadline = deadline;
+        _generation += 1;
+        if (_main == null) {
+            _main = new Searcher();
+        }
+        _main._board = board;
+        _main._generation = _generation;
+        _main.prepare(board.size());
+        synchronized (_searchers) {
+            for (Searcher s : _searchers) {
+                s._stats.clear();
+            }
+        }
+        int move = -1;
+        int completed = 0;
+        for (int depth = 1; depth <= _maxDepth; depth += 1) {
+            _abortable = depth > 1;
+            int score = searchRoot(board, c, depth, move);
+            if (_stopped) {
+                break;
+            }
+            move = _rootMove;
+            _lastScore = score;
+            completed = depth;
+            if (Math.abs(score) == WINNING_VALUE
+                || System.nanoTime() >= _deadline) {
+                break;
+            }
+        }
+        _stats.clear();
+        synchronized (_searchers) {
+            for (Searcher s : _searchers) {
+                _stats.add(s._stats);
+            }
+        }
+        _stats.finish(completed, System.nanoTime() - start);
+        return move;
+    }
 
-        /** The potential move the player could make. */
-        private int[] _myMove;
+    /** Returns my estimate of the value of BOARD for C, who is to move,
+     *  without searching it. */
+    int evaluate(Board board, Color c) {
+        return _evaluator.evaluate(board, c);
+    }
 
-        /** The score of the potential move. */
-        private int _myScore;
+    /** Search the moves of C on BOARD to DEPTH plies, trying PREVIOUS (the
+     *  best move of the last iteration, or -1) first.  Sets _rootMove to
+     *  the first move, in that order, with the best value, and returns
+     *  that value.  With more than one thread, the first move is searched
+     *  on BOARD and the rest are shared among the threads of _pool, each
+     *  working on its own copy of BOARD and using the best value found
+     *  so far by any thread as its lower bound. */
+    private int searchRoot(Board board, Color c, int depth, int previous) {
+        int[] moves = rootMoves(board, c, previous);
+        _rootMove = moves[0];
+        _main._stats.countNode();
+        board.addSpot(c, moves[0]);
+        int bestScore = -_main.negamax(board, c.opposite(), depth - 1,
+                                       -INFINITY, INFINITY, 1);
+        board.undo();
+        if (_threads == 1) {
+            for (int k = 1; k < moves.length && !_stopped; k += 1) {
+                board.addSpot(c, moves[k]);
+                int score = -_main.negamax(board, c.opposite(), depth - 1,
+                                           -INFINITY, -bestScore, 1);
+                board.undo();
+                if (score > bestScore && !_stopped) {
+                    bestScore = score;
+                    _rootMove = moves[k];
+                }
+            }
+            return bestScore;
+        }
 
-        /** RETURNS _MYMOVE. */
-        private int[] getMyMove() {
-            return _myMove;
+        AtomicInteger shared = new AtomicInteger(bestScore);
+        int[] scores = new int[moves.length];
+        boolean[] exact = new boolean[moves.length];
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int k = 1; k < moves.length; k += 1) {
+            final int index = k;
+            tasks.add(() -> {
+                    if (_stopped) {
+                        return null;
+                    }
+                    Searcher s = worker(board);
+                    int alpha = shared.get() - 1;
+                    int score;
+                    try {
+                        s._board.addSpot(c, moves[index]);
+                        score = -s.negamax(s._board, c.opposite(),
+                                           depth - 1, -INFINITY, -alpha, 1);
+                        s._board.undo();
+                    } finally {
+                        _workers.add(s);
+                    }
+                    scores[index] = score;
+                    exact[index] = score > alpha;
+                    shared.accumulateAndGet(score, Math::max);
+                    return null;
+                });
         }
+        if (_pool == null) {
+            _pool = new ForkJoinPool(_threads);
+        }
+        _pool.invokeAll(tasks);
+        for (int k = 1; k < moves.length; k += 1) {
+            if (exact[k] && scores[k] > bestScore) {
+                bestScore = scores[k];
+                _rootMove = moves[k];
+            }
+        }
+        return bestScore;
+    }
 
-        /** RETURNS _MYSCORE. */
-        private int getMyScore() {
-            return _myScore;
+    /** Return the legal moves of C on BOARD, with PREVIOUS (if legal)
+     *  first and the others in order of square number. */
+    private int[] rootMoves(Board board, Color c, int previous) {
+        int n = board.size();
+        int[] moves = new int[n * n];
+        int count = board.legalMoves(c, moves);
+        for (int k = 0; k < count; k += 1) {
+            if (moves[k] == previous) {
+                System.arraycopy(moves, 0, moves, 1, k);
+                moves[0] = previous;
+                break;
+            }
         }
+        return Arrays.copyOf(moves, count);
+    }
 
-        /** Sets _myMove to input MYMOVE. */
-        private void setMyMove(int[] myMove) {
-            _myMove = myMove;
+    /** Return an idle Searcher from _workers (a new one if there are
+     *  none), with its own copy of BOARD, the position being searched.
+     *  The caller returns it to _workers when done, so there are never
+     *  more Searchers than tasks that have run at once. */
+    private Searcher worker(Board board) {
+        Searcher s = _workers.poll();
+        if (s == null) {
+            s = new Searcher();
+        }
+        if (s._generation != _generation) {
+            s._board = copy(board);
+            s._generation = _generation;
+            s.prepare(board.size());
         }
+        return s;
+    }
 
-        /** Sets _myScore to input MYSCORE. */
-        private void setMyScore(int myScore) {
-            _myScore = myScore;
+    /** Returns a new Board with the contents of BOARD, of the kind I
+     *  search on. */
+    private Board copy(Board board) {
+        if (useBitBoard(board)) {
+            return new BitBoard(board);
+        } else {
+            return new MutableBoard(board);
         }
     }
 
-}
+    /** Returns true iff I should search BOARD on a BitBoard. */
+    private boolean useBitBoard(Board board) {
+        return board.size() <= BitBoard.MAX_SIZE;
+    }
 
+    /** The state of one thread's search. */
+    private class Searcher {
 
+        /** A new Searcher, recorded in _searchers. */
+        Searcher() {
+            _searchers.add(this);
+        }
+
+        /** Set up my move-ordering tables for a search of a board with
+         *  SIZE squares on a side, keeping what I have learned if the size
+         *  is unchanged. */
+        void prepare(int size) {
+            int squares = size * size;
+            if (_history[0].length != squares) {
+                for (int i = 0; i < _history.length; i += 1) {
+                    _history[i] = new int[squares];
+                }
+                for (int ply = 0; ply < MAX_PLY; ply += 1) {
+                    _moveLists[ply] = new int[squares];
+                    _moveScores[ply] = new int[squares];
+                }
+            }
+            for (int[] killers : _killers) {
+                Arrays.fill(killers, -1);
+            }
+        }
+
+        /** Return the value of BOARD for C, who is to move, searching
+         *  DEPTH plies ahead with alpha-beta pruning.  PLY is the distance
+         *  from the root.  Values are from C's point of view; a value
+         *  <= ALPHA or >= BETA is only a bound on the true value.  Results
+         *  are stored in and reused from _table.  If the time runs out,
+         *  sets _stopped and returns a meaningless value. */
+        int negamax(Board board, Color c, int depth, int alpha, int beta,
+                    int ply) {
+            Color winner = board.getWinner();
+            _stats.countNode();
+            if (winner == c) {
+                return WINNING_VALUE;
+            } else if (winner == c.opposite()) {
+                return -WINNING_VALUE;
+            }
+            int alpha0 = alpha;
+            long key = Zobrist.position(board, c);
+            long entry = _table.probe(key);
+            int hashMove = -1;
+            if (entry != MISSING) {
+                _stats.countTableHit();
+                hashMove = move(entry);
+                if (depth(entry) >= depth) {
+                    int score = score(entry);
+                    switch (bound(entry)) {
+                    case EXACT:
+                        return score;
+                    case LOWER:
+                        alpha = Math.max(alpha, score);
+                        break;
+                    default:
+                        beta = Math.min(beta, score);
+                        break;
+                    }
+                    if (alpha >= beta) {
+                        _stats.countCutoff();
+                        return score;
+                    }
+                }
+            }
+            if (depth == 0) {
+                _stats.countLeaf();
+                int score = _evaluator.evaluate(board, c);
+                _table.store(key, 0, EXACT, score, -1);
+                return score;
+            }
+            int bestScore = -INFINITY;
+            int bestMove = -1;
+            int[] moves = _moveLists[ply];
+            int[] order = _moveScores[ply];
+            int count = orderMoves(board, c, hashMove, ply, moves, order);
+            for (int k = 0; k < count; k += 1) {
+                int i = nextMove(moves, order, k, count);
+                board.addSpot(c, i);
+                _stats.countCascade(board.cascadeSteps());
+                int score = -negamax(board, c.opposite(), depth - 1,
+                                     -beta, -alpha, ply + 1);
+                board.undo();
+                if (timeUp()) {
+                    return 0;
+                }
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = i;
+                    alpha = Math.max(alpha, score);
+                    if (alpha >= beta) {
+                        _stats.countCutoff();
+                        recordCutoff(c, i, depth, ply);
+                        break;
+                    }
+                }
+            }
+            int bound;
+            if (bestScore <= alpha0) {
+                bound = UPPER;
+            } else if (bestScore >= beta) {
+                bound = LOWER;
+            } else {
+                bound = EXACT;
+            }
+            _table.store(key, depth, bound, bestScore, bestMove);
+            return bestScore;
+        }
+
+        /** Fill MOVES with the legal moves of C on BOARD and ORDER with
+         *  their priorities for searching at PLY.  In decreasing priority,
+         *  these are HASHMOVE, moves onto full squares (which start a
+         *  cascade; the more enemy neighbors, the better), killer moves of
+         *  PLY, and the rest by their history scores.  Returns the number
+         *  of moves. */
+        private int orderMoves(Board board, Color c, int hashMove, int ply,
+                               int[] moves, int[] order) {
+            Geometry geometry = board.geometry();
+            int[] history = _history[c.ordinal()];
+            int[] killers = _killers[ply];
+            Color enemy = c.opposite();
+            int count = board.legalMoves(c, moves);
+            for (int k = 0; k < count; k += 1) {
+                int i = moves[k];
+                int priority;
+                if (i == hashMove) {
+                    priority = HASH_PRIORITY;
+                } else if (board.spots(i) == geometry.neighbors(i)) {
+                    priority = CASCADE_PRIORITY;
+                    int end = geometry.adjacentEnd(i);
+                    for (int j = geometry.adjacentStart(i); j < end; j += 1) {
+                        if (board.color(geometry.adjacent(j)) == enemy) {
+                            priority += 1;
+                        }
+                    }
+                } else if (i == killers[0]) {
+                    priority = KILLER_PRIORITY + 1;
+                } else if (i == killers[1]) {
+                    priority = KILLER_PRIORITY;
+                } else {
+                    priority = history[i];
+                }
+                order[k] = priority;
+            }
+            return count;
+        }
+
+        /** Move the move with the highest priority among MOVES[K .. COUNT-1]
+         *  (whose priorities are in ORDER) to position K, and return it. */
+        private int nextMove(int[] moves, int[] order, int k, int count) {
+            int best = k;
+            for (int j = k + 1; j < count; j += 1) {
+                if (order[j] > order[best]) {
+                    best = j;
+                }
+            }
+            int move = moves[best];
+            moves[best] = moves[k];
+            moves[k] = move;
+            int priority = order[best];
+            order[best] = order[k];
+            order[k] = priority;
+            return move;
+        }
+
+        /** Record that MOVE by C caused a cutoff in a search of DEPTH plies
+         *  at PLY, updating the killer moves and history scores. */
+        private void recordCutoff(Color c, int move, int depth, int ply) {
+            int[] killers = _killers[ply];
+            if (killers[0] != move) {
+                killers[1] = killers[0];
+                killers[0] = move;
+            }
+            int[] history = _history[c.ordinal()];
+            history[move] += depth * depth;
+            if (history[move] >= KILLER_PRIORITY) {
+                for (int i = 0; i < history.length; i += 1) {
+                    history[i] /= 2;
+                }
+            }
+        }
+
+        /** Return true iff the current search should stop because its
+         *  time is up, checking the clock only every so often. */
+        private boolean timeUp() {
+            if (_stopped) {
+                return true;
+            } else if (_abortable) {
+                _clockCheck -= 1;
+                if (_clockCheck <= 0) {
+                    _clockCheck = CLOCK_INTERVAL;
+                    if (System.nanoTime() >= _deadline) {
+                        _stopped = true;
+                    }
+                }
+            }
+            return _stopped;
+        }
+
+        /** The board this Searcher works on. */
+        private Board _board;
+        /** The findMove call for which _board was set. */
+        private int _generation;
+        /** Number of nodes left before the clock is next checked. */
+        private int _clockCheck;
+        /** Counts of my work in the current search. */
+        private final SearchStats _stats = new SearchStats();
+
+        /** For each Color (by ordinal) and square, a score that grows
+         *  with the number and depth of cutoffs caused by moving there. */
+        private final int[][] _history = {
+            new int[0], new int[0], new int[0]
+        };
+        /** The two most recent moves that caused cutoffs at each ply. */
+        private final int[][] _killers = new int[MAX_PLY][2];
+        /** Moves being searched at each ply. */
+        private final int[][] _moveLists = new int[MAX_PLY][];
+        /** Priorities of the moves in _moveLists. */
+        private final int[][] _moveScores = new int[MAX_PLY][];
+    }
+
+    /** A value greater than that of any position. */
+    private static final int INFINITY = Integer.MAX_VALUE - 1;
+
+    /** The value of a won position. */
+    private static final int WINNING_VALUE = INFINITY - 1;
+
+    /** Limit on the number of plies in a search. */
+    private static final int MAX_PLY = 64;
+
+    /** Move-ordering priority of the move from the transposition table. */
+    private static final int HASH_PRIORITY = 1 << 30;
+    /** Move-ordering priority of moves that start a cascade, to which is
+     *  added the number of enemy neighbors. */
+    private static final int CASCADE_PRIORITY = 1 << 29;
+    /** Move-ordering priority of killer moves; all history scores are
+     *  less than this. */
+    private static final int KILLER_PRIORITY = 1 << 28;
+
+    /** Number of nodes searched between checks of the clock. */
+    private static final int CLOCK_INTERVAL = 1024;
+
+    /** Results of earlier searches, kept from move to move and shared by
+     *  all threads. */
+    private final TranspositionTable _table;
+    /** Static evaluation used at the leaves of my searches. */
+    private Evaluator _evaluator;
+    /** Precomputed moves for opening positions, or null. */
+    private OpeningBook _book;
+    /** Number of moves findMove has taken from _book. */
+    private int _bookMoves;
+    /** The endgame solver, created when first needed, or null. */
+    private ProofNumberSolver _solver;
+    /** Most squares not held by the leading player in a position I try
+     *  to solve, and the node limit of the solver. */
+    private int _endgameSquares, _solverNodes;
+    /** Number of moves findMove chose in proven wins and losses. */
+    private int _solvedWins, _solvedLosses;
+
+    /** The thread running the current ponder search, if any. */
+    private Thread _ponderThread;
+    /** The opponent's move my last ponder search assumed, or -1 if there
+     *  is no usable ponder result. */
+    private int _ponderMove = -1;
+    /** Key, with me to move, of the position my last ponder search
+     *  searched. */
+    private long _ponderKey;
+    /** The move my last ponder search found (-1 if none). */
+    private volatile int _ponderResult;
+    /** The time my last ponder search took, in nanoseconds. */
+    private volatile long _ponderNanos;
+    /** Number of times findMove found the position I pondered. */
+    private int _ponderHits;
+
+    /** Maximum search depth. */
+    private int _maxDepth;
+    /** Time allowed per move, in milliseconds. */
+    private long _timeBudget;
+    /** Number of threads to search with. */
+    private int _threads;
+
+    /** Threads for parallel searches, created when first needed. */
+    private ForkJoinPool _pool;
+    /** The Searcher working on the game's own board. */
+    private Searcher _main;
+    /** The Searchers not in use by a thread of _pool. */
+    private final ConcurrentLinkedQueue<Searcher> _workers =
+        new ConcurrentLinkedQueue<Searcher>();
+    /** Number of calls to findMove so far. */
+    private int _generation;
+    /** All Searchers I have created since _pool was last replaced. */
+    private final List<Searcher> _searchers =
+        Collections.synchronizedList(new ArrayList<Searcher>());
+    /** Statistics of the last call to findMove. */
+    private final SearchStats _stats = new SearchStats();
+
+    /** The best move found by the last call of searchRoot. */
+    private int _rootMove;
+    /** The value of the move chosen by the last search. */
+    private int _lastScore;
+    /** Value of System.nanoTime() at which the current search must end. */
+    private volatile long _deadline;
+    /** True iff the current search may be stopped by the clock. */
+    private volatile boolean _abortable;
+    /** True iff the current search has run out of time. */
+    private volatile boolean _stopped;
+
+}
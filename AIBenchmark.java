@@ -0,0 +1,98 @@
+package jumpCube;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static jumpCube.Color.*;
+
+/** JMH benchmarks of the AI's evaluation and search.  Searches are
+ *  single-threaded, to a fixed depth, without the endgame solver, and
+ *  start with an empty transposition table, so that results are
+ *  reproducible.
+ *  @author Brian Ha
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AIBenchmark {
+
+    /** A position to evaluate. */
+    @State(Scope.Thread)
+    public static class Evaluation {
+
+        /** Number of squares on a side. */
+        @Param({"3", "6", "10", "20", "50"})
+        public int size;
+
+        /** The position evaluated. */
+        private MutableBoard _board;
+        /** The player under test. */
+        private AI _ai;
+
+        @Setup
+        public void setup() {
+            _board = BoardBenchmark.position(size, 0);
+            _ai = new AI(Game.headless(), RED);
+        }
+    }
+
+    /** A position to search, with an AI whose table is cleared before
+     *  each search. */
+    @State(Scope.Thread)
+    public static class Search {
+
+        /** Number of squares on a side. */
+        @Param({"3", "6", "10", "20", "50"})
+        public int size;
+
+        /** Search depth. */
+        @Param({"1", "2", "3"})
+        public int depth;
+
+        /** The position searched. */
+        private MutableBoard _board;
+        /** The player under test. */
+        private AI _ai;
+
+        @Setup
+        public void setup() {
+            _board = BoardBenchmark.position(size, 0);
+            _ai = new AI(Game.headless(), RED);
+            _ai.setThreads(1);
+            _ai.setDepth(depth);
+            _ai.setTimeBudget(Long.MAX_VALUE / 2000000L);
+            _ai.setSolver(0, 0);
+        }
+
+        @Setup(Level.Invocation)
+        public void clearTable() {
+            _ai.clearTable();
+        }
+    }
+
+    /** Evaluate a position without searching. */
+    @Benchmark
+    public int evaluate(Evaluation state) {
+        return state._ai.evaluate(state._board, RED);
+    }
+
+    /** Choose a move by searching to the given depth. */
+    @Benchmark
+    public int search(Search state) {
+        return state._ai.findMove(state._board, RED);
+    }
+}
@@ -0,0 +1,184 @@
+package jumpCube;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static jumpCube.GameException.error;
+import static jumpCube.Main.number;
+
+/** Runs scripts of commands and moves, such as recorded games, each in
+ *  its own Game in batch mode, several at once, and reports the result
+ *  of each: the moves made, the errors reported, and the final state
+ *  of its board.
+ *
+ *  Usage: java jumpCube.Main --batch [OPTION VALUE]... FILE..., where
+ *  the options are
+ *    --threads N   scripts run at once (default: one per processor),
+ *    --out DIR     write the output of script FILE to DIR/FILE.out
+ *                  (by default, it is discarded); the FILEs must then
+ *                  have different names, even if in different
+ *                  directories.
+ *  @author Brian Ha
+ */
+class Batch {
+
+    /** A batch of scripts described by ARGS (see the class comment). */
+    Batch(String[] args) {
+        _threads = Defaults.THREADS;
+        int i;
+        for (i = 0; i < args.length && args[i].startsWith("--"); i += 2) {
+            if (i + 1 == args.length) {
+                throw error("option %s has no value", args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+            case "--threads":
+                _threads = number(value, 1);
+                break;
+            case "--out":
+                _outDir = Paths.get(value);
+                break;
+            default:
+                throw error("unknown option: %s", args[i]);
+            }
+        }
+        if (i == args.length) {
+            throw error("no scripts given");
+        }
+        Map<Path, Path> names = new HashMap<>();
+        for (; i < args.length; i += 1) {
+            Path script = Paths.get(args[i]);
+            Path other = names.put(script.getFileName(), script);
+            if (_outDir != null && other != null) {
+                throw error("scripts %s and %s would both write %s.out",
+                            other, script, script.getFileName());
+            }
+            _scripts.add(script);
+        }
+    }
+
+    /** Run all the scripts, printing a line for each on OUT, in the order
+     *  given, followed by a summary.  Returns 0 if every script ran
+     *  without errors, and 1 otherwise. */
+    int run(PrintStream out) {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(_threads);
+        int failures = 0;
+        long moves = 0;
+        try {
+            List<Future<Result>> results = new ArrayList<>();
+            for (Path script : _scripts) {
+                results.add(pool.submit(() -> run(script)));
+            }
+            for (Future<Result> future : results) {
+                Result result = future.get();
+                out.println(result);
+                moves += result._moves;
+                if (!result.ok()) {
+                    failures += 1;
+                }
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            return 1;
+        } catch (ExecutionException excp) {
+            throw new IllegalStateException(excp.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        out.printf("%d scripts, %d with errors, %d moves in %.2f s "
+                   + "(%.0f moves/s) with %d threads%n",
+                   _scripts.size(), failures, moves, seconds,
+                   moves / seconds, _threads);
+        out.flush();
+        return failures == 0 ? 0 : 1;
+    }
+
+    /** Run SCRIPT and return its Result. */
+    private Result run(Path script) {
+        Result result = new Result(script);
+        long start = System.nanoTime();
+        try (Reader input = Files.newBufferedReader(script);
+             Writer output = output(script)) {
+            Game game = Game.batch(input, output, output);
+            game.play();
+            result._moves = game.movesPlayed();
+            result._errors = game.errors();
+            Board board = game.getBoard();
+            Color winner = board.getWinner();
+            result._state = winner != null
+                ? winner.toCapitalizedString() + " wins"
+                : board.whoseMove().toCapitalizedString() + " to move";
+        } catch (IOException | RuntimeException excp) {
+            result._failure = excp.toString();
+        }
+        result._nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /** Returns the Writer to which to send the output of SCRIPT. */
+    private Writer output(Path script) throws IOException {
+        if (_outDir == null) {
+            return Writer.nullWriter();
+        }
+        Path name = script.getFileName();
+        return Files.newBufferedWriter(_outDir.resolve(name + ".out"));
+    }
+
+    /** The outcome of running one script. */
+    private static class Result {
+
+        /** A Result for SCRIPT. */
+        Result(Path script) {
+            _script = script;
+        }
+
+        /** Returns true iff the script was read and ran without
+         *  errors. */
+        boolean ok() {
+            return _failure == null && _errors == 0;
+        }
+
+        @Override
+        public String toString() {
+            if (_failure != null) {
+                return String.format("%s: FAILED (%s)", _script, _failure);
+            }
+            return String.format("%s: %s, %d moves, %d errors, %s, %.1f ms",
+                                 _script, ok() ? "OK" : "ERRORS", _moves,
+                                 _errors, _state, _nanos / 1e6);
+        }
+
+        /** The script. */
+        private final Path _script;
+        /** Numbers of moves made and errors reported. */
+        private int _moves, _errors;
+        /** Description of the board at the end. */
+        private String _state;
+        /** If the script could not be run, why; otherwise null. */
+        private String _failure;
+        /** Running time in nanoseconds. */
+        private long _nanos;
+    }
+
+    /** The scripts, in order. */
+    private final List<Path> _scripts = new ArrayList<>();
+    /** Number of scripts run at once. */
+    private int _threads;
+    /** Directory for the output of the scripts, or null. */
+    private Path _outDir;
+}
@@ -0,0 +1,502 @@
+package jumpCube;
+
+import static jumpCube.Color.*;
+import java.util.Arrays;
+import static jumpCube.GameException.error;
+
+/** A Board of at most 8 x 8 squares kept in 64-bit words, square #N
+ *  being bit N of each word.  One word holds the red squares and one the
+ *  blue squares; the number of spots on each square is kept as a binary
+ *  number whose bits are spread across four words (bit planes).  Moves
+ *  are made by firing all over-full squares at once with shifts and
+ *  bitwise arithmetic, so copying, making, and undoing a move take a
+ *  handful of word operations.
+ *  @author Brian Ha
+ */
+class BitBoard extends Board {
+
+    /** The largest size of board a BitBoard can represent. */
+    static final int MAX_SIZE = 8;
+
+    /** An N x N board in initial configuration (N <= MAX_SIZE). */
+    BitBoard(int N) {
+        clear(N);
+    }
+
+    /** A board whose initial contents are copied from BOARD0, which must
+     *  be no more than MAX_SIZE squares on a side.  The undo history is
+     *  empty. */
+    BitBoard(Board board0) {
+        copy(board0);
+    }
+
+    @Override
+    void clear(int N) {
+        if (N < 1 || N > MAX_SIZE) {
+            throw error("A BitBoard cannot have %d squares on a side.", N);
+        }
+        clearUndo();
+        setSize(N);
+        _red = _blue = 0;
+        _spots0 = _spots1 = _spots2 = _spots3 = 0;
+        _key = 0;
+        _moves = 0;
+    }
+
+    @Override
+    void copy(Board board) {
+        board = board.backing();
+        if (board instanceof BitBoard) {
+            BitBoard other = (BitBoard) board;
+            clearUndo();
+            setSize(other._N);
+            _red = other._red;
+            _blue = other._blue;
+            _spots0 = other._spots0;
+            _spots1 = other._spots1;
+            _spots2 = other._spots2;
+            _spots3 = other._spots3;
+            _key = other._key;
+            _moves = other._moves;
+        } else {
+            clear(board.size());
+            for (int i = 0; i < _N * _N; i += 1) {
+                put(i, board.spots(i), board.color(i));
+            }
+            _moves = board.numMoves();
+        }
+    }
+
+    @Override
+    Board snapshot() {
+        return new BitBoard(this);
+    }
+
+    @Override
+    int size() {
+        return _N;
+    }
+
+    @Override
+    Geometry geometry() {
+        return _geometry;
+    }
+
+    @Override
+    int spots(int r, int c) {
+        return spots(sqNum(r, c));
+    }
+
+    @Override
+    int spots(int n) {
+        return (int) ((_spots0 >>> n) & 1) | (int) ((_spots1 >>> n) & 1) << 1
+            | (int) ((_spots2 >>> n) & 1) << 2
+            | (int) ((_spots3 >>> n) & 1) << 3;
+    }
+
+    @Override
+    Color color(int r, int c) {
+        return color(sqNum(r, c));
+    }
+
+    @Override
+    Color color(int n) {
+        if ((_red >>> n & 1) != 0) {
+            return RED;
+        } else if ((_blue >>> n & 1) != 0) {
+            return BLUE;
+        } else {
+            return WHITE;
+        }
+    }
+
+    @Override
+    int numMoves() {
+        return _moves;
+    }
+
+    @Override
+    int numOfColor(Color color) {
+        return Long.bitCount(squares(color));
+    }
+
+    @Override
+    int spotsOfColor(Color color) {
+        if (color == WHITE) {
+            return 0;
+        }
+        long mask = squares(color);
+        return Long.bitCount(_spots0 & mask)
+            + 2 * Long.bitCount(_spots1 & mask)
+            + 4 * Long.bitCount(_spots2 & mask)
+            + 8 * Long.bitCount(_spots3 & mask);
+    }
+
+    @Override
+    int fullSquares(Color color) {
+        if (color == WHITE) {
+            return 0;
+        }
+        return Long.bitCount(full() & squares(color));
+    }
+
+    @Override
+    int threatenedSquares(Color color) {
+        if (color == WHITE) {
+            return 0;
+        }
+        long mine = squares(color);
+        long threats = full() & squares(color.opposite());
+        return Long.bitCount(left(threats) & mine)
+            + Long.bitCount(right(threats) & mine)
+            + Long.bitCount(up(threats) & mine)
+            + Long.bitCount(down(threats) & mine);
+    }
+
+    @Override
+    int borderSquares(Color color) {
+        if (color == WHITE) {
+            return 0;
+        }
+        long mask = squares(color);
+        return 2 * Long.bitCount(mask & _corners)
+            + Long.bitCount(mask & _edges);
+    }
+
+    @Override
+    long key() {
+        return _key;
+    }
+
+    @Override
+    int legalMoves(Color player, int[] moves) {
+        long bits = ~squares(player.opposite()) & _all;
+        int count = 0;
+        while (bits != 0) {
+            moves[count++] = Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+        }
+        return count;
+    }
+
+    @Override
+    void addSpot(Color player, int r, int c) {
+        addSpot(player, sqNum(r, c));
+    }
+
+    @Override
+    void addSpot(Color player, int n) {
+        if (!exists(n)) {
+            return;
+        }
+        save();
+        long bit = 1L << n;
+        add(bit);
+        if (player == RED) {
+            _red |= bit;
+            _blue &= ~bit;
+        } else {
+            _blue |= bit;
+            _red &= ~bit;
+        }
+        jump(player);
+        updateKey();
+    }
+
+    @Override
+    int cascadeFlips() {
+        return _cascadeFlips;
+    }
+
+    @Override
+    int cascadeSteps() {
+        return _cascadeSteps;
+    }
+
+    @Override
+    void set(int r, int c, int num, Color player) {
+        if (exists(r, c)) {
+            int n = sqNum(r, c);
+            int neigh = _geometry.neighbors(n);
+            if (num == 0) {
+                put(n, 0, WHITE);
+            } else if (num > -1 && num <= neigh) {
+                put(n, num, player);
+            } else {
+                throw error("The new number of dots must be less"
+                            + "than %d and greater than 0.",
+                            neigh);
+            }
+        } else {
+            throw error("%d:%d is an invalid position.", r, c);
+        }
+        clearUndo();
+    }
+
+    @Override
+    void set(int n, int num, Color player) {
+        set(row(n), col(n), num, player);
+    }
+
+    @Override
+    void setMoves(int num) {
+        assert num >= 0;
+        _moves = num;
+        clearUndo();
+    }
+
+    @Override
+    void undo() {
+        assert _numUndos > 0;
+        _numUndos -= 1;
+        int k = _numUndos * SAVED_WORDS;
+        _red = _saved[k];
+        _blue = _saved[k + 1];
+        _spots0 = _saved[k + 2];
+        _spots1 = _saved[k + 3];
+        _spots2 = _saved[k + 4];
+        _spots3 = _saved[k + 5];
+        _key = _saved[k + 6];
+    }
+
+    /** Set my size to N, with the masks that go with it. */
+    private void setSize(int N) {
+        _N = N;
+        _geometry = Geometry.of(N);
+        _all = N * N == Long.SIZE ? -1L : (1L << (N * N)) - 1;
+        _corners = _edges = _interior = _notFirstCol = _notLastCol = 0;
+        for (int i = 0; i < N * N; i += 1) {
+            long bit = 1L << i;
+            switch (_geometry.neighbors(i)) {
+            case 2:
+                _corners |= bit;
+                break;
+            case 3:
+                _edges |= bit;
+                break;
+            default:
+                _interior |= bit;
+                break;
+            }
+            if (_geometry.col(i) > 1) {
+                _notFirstCol |= bit;
+            }
+            if (_geometry.col(i) < N) {
+                _notLastCol |= bit;
+            }
+        }
+    }
+
+    /** Returns the squares of COLOR. */
+    private long squares(Color color) {
+        switch (color) {
+        case RED:
+            return _red;
+        case BLUE:
+            return _blue;
+        default:
+            return _all & ~(_red | _blue);
+        }
+    }
+
+    /** Set square #N to SPOTS spots of color CLR, updating the key. */
+    private void put(int n, int spots, Color clr) {
+        long bit = 1L << n;
+        _key ^= Zobrist.square(n, color(n).ordinal(), spots(n))
+            ^ Zobrist.square(n, clr.ordinal(), spots);
+        _spots0 = (_spots0 & ~bit) | ((spots & 1L) << n);
+        _spots1 = (_spots1 & ~bit) | ((spots >> 1 & 1L) << n);
+        _spots2 = (_spots2 & ~bit) | ((spots >> 2 & 1L) << n);
+        _spots3 = (_spots3 & ~bit) | ((spots >> 3 & 1L) << n);
+        _red &= ~bit;
+        _blue &= ~bit;
+        if (clr == RED) {
+            _red |= bit;
+        } else if (clr == BLUE) {
+            _blue |= bit;
+        }
+    }
+
+    /** Fire over-full squares until there are none left or PLAYER owns
+     *  every square.  In each round, every over-full square gives one
+     *  spot to each neighbor, which becomes PLAYER's.  The order of
+     *  firing does not affect the final position, so the result is the
+     *  same as firing squares one at a time. */
+    private void jump(Color player) {
+        _cascadeFlips = 0;
+        _cascadeSteps = 0;
+        long mine = player == RED ? _red : _blue;
+        long fire = overfull();
+        while (fire != 0 && mine != _all) {
+            _cascadeSteps += Long.bitCount(fire);
+            subtractCapacity(fire);
+            long left = left(fire), right = right(fire);
+            long up = up(fire), down = down(fire);
+            add(left);
+            add(right);
+            add(up);
+            add(down);
+            long hit = left | right | up | down;
+            _cascadeFlips += Long.bitCount(hit & ~mine);
+            mine |= hit;
+            fire = overfull();
+        }
+        if (player == RED) {
+            _red = mine;
+            _blue &= ~mine;
+        } else {
+            _blue = mine;
+            _red &= ~mine;
+        }
+    }
+
+    /** Returns the squares holding more spots than they have
+     *  neighbors. */
+    private long overfull() {
+        long high = _spots3 | _spots2;
+        return (_corners & (high | (_spots1 & _spots0)))
+            | (_edges & high)
+            | (_interior & (_spots3 | (_spots2 & (_spots1 | _spots0))));
+    }
+
+    /** Returns the squares holding exactly as many spots as they have
+     *  neighbors. */
+    private long full() {
+        long low = ~_spots3 & ~_spots2 & _spots1;
+        return (_corners & low & ~_spots0) | (_edges & low & _spots0)
+            | (_interior & ~_spots3 & _spots2 & ~_spots1 & ~_spots0);
+    }
+
+    /** Add one spot to each of the SQUARES. */
+    private void add(long squares) {
+        long carry = squares;
+        long next = _spots0 & carry;
+        _spots0 ^= carry;
+        carry = next;
+        next = _spots1 & carry;
+        _spots1 ^= carry;
+        carry = next;
+        next = _spots2 & carry;
+        _spots2 ^= carry;
+        _spots3 ^= next;
+    }
+
+    /** Remove from each of the SQUARES as many spots as it has
+     *  neighbors. */
+    private void subtractCapacity(long squares) {
+        long bit0 = squares & _edges;
+        long bit1 = squares & (_corners | _edges);
+        long bit2 = squares & _interior;
+        long borrow = ~_spots0 & bit0;
+        _spots0 ^= bit0;
+        long next = (~_spots1 & (bit1 | borrow)) | (bit1 & borrow);
+        _spots1 ^= bit1 ^ borrow;
+        borrow = next;
+        next = (~_spots2 & (bit2 | borrow)) | (bit2 & borrow);
+        _spots2 ^= bit2 ^ borrow;
+        _spots3 ^= next;
+    }
+
+    /** Returns the left-hand neighbors of SQUARES. */
+    private long left(long squares) {
+        return (squares & _notFirstCol) >>> 1;
+    }
+
+    /** Returns the right-hand neighbors of SQUARES. */
+    private long right(long squares) {
+        return (squares & _notLastCol) << 1;
+    }
+
+    /** Returns the neighbors above SQUARES. */
+    private long up(long squares) {
+        return squares >>> _N;
+    }
+
+    /** Returns the neighbors below SQUARES. */
+    private long down(long squares) {
+        return (squares << _N) & _all;
+    }
+
+    /** Push my current contents onto the undo stack. */
+    private void save() {
+        int k = _numUndos * SAVED_WORDS;
+        if (k == _saved.length) {
+            _saved = Arrays.copyOf(_saved, 2 * k);
+        }
+        _saved[k] = _red;
+        _saved[k + 1] = _blue;
+        _saved[k + 2] = _spots0;
+        _saved[k + 3] = _spots1;
+        _saved[k + 4] = _spots2;
+        _saved[k + 5] = _spots3;
+        _saved[k + 6] = _key;
+        _numUndos += 1;
+    }
+
+    /** Bring _key up to date after a move, comparing my contents with
+     *  those saved on top of the undo stack. */
+    private void updateKey() {
+        int k = (_numUndos - 1) * SAVED_WORDS;
+        long red = _saved[k], blue = _saved[k + 1];
+        long s0 = _saved[k + 2], s1 = _saved[k + 3];
+        long s2 = _saved[k + 4], s3 = _saved[k + 5];
+        long changed = (red ^ _red) | (blue ^ _blue) | (s0 ^ _spots0)
+            | (s1 ^ _spots1) | (s2 ^ _spots2) | (s3 ^ _spots3);
+        long key = _saved[k + 6];
+        while (changed != 0) {
+            int n = Long.numberOfTrailingZeros(changed);
+            changed &= changed - 1;
+            int oldSpots = (int) ((s0 >>> n) & 1) | (int) ((s1 >>> n) & 1) << 1
+                | (int) ((s2 >>> n) & 1) << 2 | (int) ((s3 >>> n) & 1) << 3;
+            int oldColor = (red >>> n & 1) != 0 ? RED_ORDINAL
+                : (blue >>> n & 1) != 0 ? BLUE_ORDINAL : WHITE_ORDINAL;
+            key ^= Zobrist.square(n, oldColor, oldSpots)
+                ^ Zobrist.square(n, color(n).ordinal(), spots(n));
+        }
+        _key = key;
+    }
+
+    /** Discard all undo information. */
+    private void clearUndo() {
+        _numUndos = 0;
+    }
+
+    /** Number of words saved on the undo stack for each move. */
+    private static final int SAVED_WORDS = 7;
+    /** Ordinal of WHITE. */
+    private static final int WHITE_ORDINAL = WHITE.ordinal();
+    /** Ordinal of RED. */
+    private static final int RED_ORDINAL = RED.ordinal();
+    /** Ordinal of BLUE. */
+    private static final int BLUE_ORDINAL = BLUE.ordinal();
+
+    /** Number of squares on a side. */
+    private int _N;
+    /** The shape of boards of size _N. */
+    private Geometry _geometry;
+    /** All squares of the board. */
+    private long _all;
+    /** Squares with 2, 3, and 4 neighbors. */
+    private long _corners, _edges, _interior;
+    /** Squares not in the first and not in the last column. */
+    private long _notFirstCol, _notLastCol;
+
+    /** Red and blue squares. */
+    private long _red, _blue;
+    /** Bits 0-3 of the number of spots on each square. */
+    private long _spots0, _spots1, _spots2, _spots3;
+    /** Zobrist key of the current contents of the squares. */
+    private long _key;
+    /** Number of moves made. */
+    private int _moves;
+
+    /** Saved contents before each undoable move, SAVED_WORDS words each:
+     *  red, blue, the four spot planes, and the key. */
+    private long[] _saved = new long[SAVED_WORDS * 16];
+    /** Number of moves that may be undone. */
+    private int _numUndos;
+    /** Number of squares that changed color in the last move. */
+    private int _cascadeFlips;
+    /** Number of times a square fired in the last move. */
+    private int _cascadeSteps;
+}
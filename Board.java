@@ -1,5 +1,8 @@
 package jumpCube;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
 import static jumpCube.Color.*;
 
 /** Represents the state of a JumpCube game.  Squares are indexed either by
@@ -21,6 +24,18 @@ abstract class Board {
         unsupported("copy");
     }
 
+    /** Returns a new Board with my contents and number of moves and an
+     *  empty undo history, which shares no state with me. */
+    Board snapshot() {
+        return new MutableBoard(this);
+    }
+
+    /** Returns the Board that holds my contents: myself, unless I am a
+     *  view of another Board.  Copies go to it to copy in bulk. */
+    Board backing() {
+        return this;
+    }
+
     /** Return the number of rows and of columns of THIS. */
     abstract int size();
 
@@ -66,13 +81,18 @@ abstract class Board {
     }
 
     /** Return the row number for square #N. */
-    final int row(int n) {
-        return (n / size()) + 1;
+    int row(int n) {
+        return geometry().row(n);
     }
 
     /** Return the column number for square #N. */
-    final int col(int n) {
-        return (n % size()) + 1;
+    int col(int n) {
+        return geometry().col(n);
+    }
+
+    /** Returns the Geometry of this board's size. */
+    Geometry geometry() {
+        return Geometry.of(size());
     }
 
     /** Return the square number of row R, column C. */
@@ -93,6 +113,20 @@ abstract class Board {
         return player.playableSquare(color(n));
     }
 
+    /** Store in MOVES, in increasing order, the numbers of the squares
+     *  to which PLAYER may currently add a spot, and return how many there
+     *  are.  MOVES must have room for size() * size() entries. */
+    int legalMoves(Color player, int[] moves) {
+        int n = size();
+        int count = 0;
+        for (int i = 0; i < n * n; i += 1) {
+            if (isLegal(player, i)) {
+                moves[count++] = i;
+            }
+        }
+        return count;
+    }
+
     /** Returns true iff PLAYER is allowed to move at this point. */
     boolean isLegal(Color player) {
         return player == whoseMove();
@@ -114,6 +148,80 @@ abstract class Board {
     /** Return the number of squares of given COLOR. */
     abstract int numOfColor(Color color);
 
+    /** Return the total number of spots on squares of COLOR. */
+    int spotsOfColor(Color color) {
+        int n = size();
+        int total = 0;
+        for (int i = 0; i < n * n; i += 1) {
+            if (color(i) == color) {
+                total += spots(i);
+            }
+        }
+        return total;
+    }
+
+    /** Return the number of full squares of COLOR: those holding as many
+     *  spots as they have neighbors, so that one more spot makes them
+     *  jump.  White squares are never full. */
+    int fullSquares(Color color) {
+        Geometry geometry = geometry();
+        int n = size();
+        int count = 0;
+        for (int i = 0; i < n * n; i += 1) {
+            if (color != WHITE && color(i) == color
+                && spots(i) == geometry.neighbors(i)) {
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    /** Return the number of pairs of adjacent squares in which one is a
+     *  square of COLOR and the other a full square of the opposing
+     *  color. */
+    int threatenedSquares(Color color) {
+        Geometry geometry = geometry();
+        int n = size();
+        int count = 0;
+        if (color == WHITE) {
+            return 0;
+        }
+        Color enemy = color.opposite();
+        for (int i = 0; i < n * n; i += 1) {
+            if (color(i) != enemy || spots(i) != geometry.neighbors(i)) {
+                continue;
+            }
+            int end = geometry.adjacentEnd(i);
+            for (int k = geometry.adjacentStart(i); k < end; k += 1) {
+                if (color(geometry.adjacent(k)) == color) {
+                    count += 1;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Return the number of corner and edge squares of COLOR, counting
+     *  each square as 4 minus its number of neighbors (so corners count
+     *  twice and interior squares not at all). */
+    int borderSquares(Color color) {
+        Geometry geometry = geometry();
+        int n = size();
+        int count = 0;
+        for (int i = 0; i < n * n; i += 1) {
+            if (color != WHITE && color(i) == color) {
+                count += 4 - geometry.neighbors(i);
+            }
+        }
+        return count;
+    }
+
+    /** Returns the Zobrist key of the contents of my squares (see
+     *  Zobrist).  Equal positions have equal keys. */
+    long key() {
+        return Zobrist.position(this);
+    }
+
     /** Add a spot from PLAYER at row R, column C.  Assumes
      *  isLegal(PLAYER, R, C). */
     void addSpot(Color player, int r, int c) {
@@ -125,6 +233,19 @@ abstract class Board {
         unsupported("addSpot");
     }
 
+    /** Returns the number of squares that changed color during the jumping
+     *  caused by the last addSpot (0 if not recorded). */
+    int cascadeFlips() {
+        return 0;
+    }
+
+    /** Returns the number of times a square overflowed into its neighbors
+     *  during the jumping caused by the last addSpot (0 if not
+     *  recorded). */
+    int cascadeSteps() {
+        return 0;
+    }
+
     /** Set the square at row R, column C to NUM spots (0 <= NUM), and give
      *  it color PLAYER if NUM > 0 (otherwise, white).  Clear the undo
      *  history. */
@@ -153,48 +274,45 @@ abstract class Board {
     /** Returns my dumped representation. */
     @Override
     public String toString() {
+        StringWriter out = new StringWriter();
+        dump(new PrintWriter(out));
+        return out.toString();
+    }
+
+    /** Write my dumped representation (as for toString, without a final
+     *  end of line) to OUT, a row at a time. */
+    void dump(PrintWriter out) {
         final String tab = "   ";
-        String out = "";
-        out += "===\n";
-        for (int i = 1; i <= size(); i++) {
-            String temp = "";
-            temp += tab;
-            for (int j = 1; j <= size(); j++) {
-                if (spots(i, j) < 1) {
-                    temp += " --";
+        int N = size();
+        StringBuilder row = new StringBuilder(tab.length() + 3 * N + 1);
+        out.write("===\n");
+        for (int n = 0; n < N * N; n += N) {
+            row.setLength(0);
+            row.append(tab);
+            for (int k = n; k < n + N; k += 1) {
+                int spots = spots(k);
+                if (spots < 1) {
+                    row.append(" --");
                 } else {
-                    temp += " " + spots(i, j)
-                        + color(i, j).toString().substring(0, 1);
+                    row.append(' ').append(spots)
+                        .append(color(k).toString().charAt(0));
                 }
             }
-            out += temp + "\n";
+            row.append('\n');
+            out.append(row);
         }
-        out += "===";
-        return out;
+        out.write("===");
     }
 
 
     /** Returns the number of neighbors of the square at row R, column C. */
     int neighbors(int r, int c) {
-        int n = size();
-        if (r == 1 || r == n) {
-            if (c == 1 || c == n) {
-                return 2;
-            } else {
-                return 3;
-            }
-        } else if (c == 1 || c == n) {
-            return 3;
-        } else {
-            return 4;
-        }
+        return geometry().neighbors(r, c);
     }
 
     /** Returns the number of neighbors of square #N. */
     int neighbors(int n) {
-        int r = row(n);
-        int c = col(n);
-        return neighbors(r, c);
+        return geometry().neighbors(n);
     }
 
     /** Indicate fatal error: OP is unsupported operation. */
@@ -0,0 +1,128 @@
+package jumpCube;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static jumpCube.Color.*;
+
+/** JMH benchmarks of the board operations used by the AI's search.
+ *  @author Brian Ha
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    /** Number of squares on a side. */
+    @Param({"3", "6", "10", "20", "50"})
+    public int size;
+
+    /** A mid-game position. */
+    private MutableBoard _board;
+    /** A full board on which one more red spot sets off a cascade that
+     *  reaches every square. */
+    private MutableBoard _full;
+    /** The legal moves of red on _board. */
+    private int[] _moves;
+    /** Index of the next move of _moves to play. */
+    private int _next;
+    /** Space for legal moves. */
+    private int[] _buffer;
+
+    @Setup
+    public void setup() {
+        _board = position(size, 0);
+        int n = size * size;
+        int count = 0;
+        int[] moves = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            if (_board.isLegal(RED, i)) {
+                moves[count++] = i;
+            }
+        }
+        _moves = Arrays.copyOf(moves, count);
+        _buffer = new int[n];
+        _full = new MutableBoard(size);
+        for (int r = 1; r <= size; r += 1) {
+            for (int c = 1; c <= size; c += 1) {
+                _full.set(r, c, _full.neighbors(r, c), RED);
+            }
+        }
+        _full.set(size, size, 1, BLUE);
+    }
+
+    /** Make and unmake one move in a mid-game position. */
+    @Benchmark
+    public long addSpotUndo() {
+        int move = _moves[_next];
+        _next = (_next + 1) % _moves.length;
+        _board.addSpot(RED, move);
+        long key = _board.key();
+        _board.undo();
+        return key;
+    }
+
+    /** Make and unmake a move whose cascade covers the board. */
+    @Benchmark
+    public Color worstCaseCascade() {
+        _full.addSpot(RED, 0);
+        Color winner = _full.getWinner();
+        _full.undo();
+        return winner;
+    }
+
+    /** Count squares of each color and check for a winner. */
+    @Benchmark
+    public void counting(Blackhole bh) {
+        bh.consume(_board.numOfColor(RED));
+        bh.consume(_board.numOfColor(BLUE));
+        bh.consume(_board.getWinner());
+    }
+
+    /** Find all legal moves for red. */
+    @Benchmark
+    public int legalMoves() {
+        return _board.legalMoves(RED, _buffer);
+    }
+
+    /** Return a position on a SIZE x SIZE board, red to move, reached by
+     *  SIZE * SIZE / 2 random moves chosen with a generator seeded from
+     *  SEED and avoiding positions in which the game is over. */
+    static MutableBoard position(int size, long seed) {
+        Random random = new Random(seed);
+        while (true) {
+            MutableBoard board = new MutableBoard(size);
+            int n = size * size;
+            int plies = n / 2 + (n / 2) % 2;
+            for (int m = 0; m < plies && board.getWinner() == null; m += 1) {
+                Color c = board.whoseMove();
+                int move;
+                do {
+                    move = random.nextInt(n);
+                } while (!board.isLegal(c, move));
+                board.addSpot(c, move);
+                board.setMoves(board.numMoves() + 1);
+            }
+            if (board.getWinner() == null) {
+                return board;
+            }
+        }
+    }
+}
@@ -2,6 +2,17 @@ package jumpCube;
 
 import static jumpCube.Color.*;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -59,6 +70,24 @@ public class BoardTest {
         assertEquals("There should be 4 neighbors.", 4, b.neighbors(4));
     }
 
+    @Test
+    public void testGeometry() {
+        Geometry g = Geometry.of(3);
+        assertSame("geometries should be shared", g,
+                   new MutableBoard(3).geometry());
+        int[] expected = { 3, 5, 1, 7 };
+        assertEquals("wrong number of neighbors", expected.length,
+                     g.adjacentEnd(4) - g.adjacentStart(4));
+        for (int k = 0; k < expected.length; k += 1) {
+            assertEquals("wrong neighbor", expected[k],
+                         g.adjacent(g.adjacentStart(4) + k));
+        }
+        assertEquals("wrong neighbor of corner", 1,
+                     g.adjacent(g.adjacentStart(0)));
+        assertEquals("wrong row", 3, g.row(7));
+        assertEquals("wrong column", 2, g.col(7));
+    }
+
     @Test
     public void testJump() {
         Board B = new MutableBoard(3);
@@ -86,6 +115,565 @@ public class BoardTest {
         assertEquals("Number should be 8", 8, n);
     }
 
+    @Test
+    public void testNumOfColor() {
+        Board B = new MutableBoard(2);
+        B.addSpot(RED, 1, 1);
+        B.addSpot(BLUE, 2, 2);
+        B.addSpot(RED, 1, 1);
+        B.addSpot(BLUE, 2, 2);
+        B.addSpot(RED, 1, 1);
+        assertEquals("wrong count", 3, B.numOfColor(RED));
+        assertEquals("wrong count", 1, B.numOfColor(BLUE));
+        assertEquals("wrong count", 0, B.numOfColor(WHITE));
+        B.undo();
+        assertEquals("wrong count after undo", 1, B.numOfColor(RED));
+        assertEquals("wrong count after undo", 1, B.numOfColor(BLUE));
+        assertEquals("wrong count after undo", 2, B.numOfColor(WHITE));
+        assertNull("no winner expected", B.getWinner());
+    }
+
+    @Test
+    public void testLongCascade() {
+        MutableBoard B = new MutableBoard(100);
+        for (int r = 1; r <= B.size(); r += 1) {
+            for (int c = 1; c <= B.size(); c += 1) {
+                B.set(r, c, B.neighbors(r, c), RED);
+            }
+        }
+        B.set(100, 100, 1, BLUE);
+        B.addSpot(RED, 1, 1);
+        assertEquals("red should own the board", RED, B.getWinner());
+        assertEquals("wrong number of flips", 1, B.cascadeFlips());
+        assertTrue("no overflows counted", B.cascadeSteps() > 100);
+        B.undo();
+        assertEquals("wrong count after undo", 1, B.numOfColor(BLUE));
+        assertEquals("wrong spots after undo", 2, B.spots(1, 1));
+    }
+
+    @Test
+    public void testCascadeUndo() {
+        MutableBoard B = new MutableBoard(4);
+        for (int c = 1; c <= 4; c += 1) {
+            B.set(1, c, B.neighbors(1, c), RED);
+            for (int r = 2; r <= 4; r += 1) {
+                B.set(r, c, 1, BLUE);
+            }
+        }
+        B.addSpot(BLUE, 4, 4);
+        String before = B.toString();
+        long key = B.key();
+        int moves = B.numMoves();
+        B.addSpot(RED, 1, 1);
+        assertEquals("wrong number of overflows", 4, B.cascadeSteps());
+        assertNull("no winner expected", B.getWinner());
+        assertEquals("wrong count after cascade", 8, B.numOfColor(RED));
+        B.undo();
+        assertEquals("board differs after undo", before, B.toString());
+        assertEquals("key differs after undo", key, B.key());
+        assertEquals("moves differ after undo", moves, B.numMoves());
+        checkFeatures(B);
+    }
+
+    @Test
+    public void testKey() {
+        Board B = new MutableBoard(3);
+        assertEquals("empty board key", 0L, B.key());
+        B.addSpot(RED, 1, 1);
+        B.addSpot(BLUE, 2, 2);
+        B.addSpot(RED, 1, 1);
+        B.addSpot(RED, 1, 1);
+        assertEquals("bad incremental key", Zobrist.position(B), B.key());
+        long key = B.key();
+        B.addSpot(BLUE, 2, 2);
+        assertTrue("key did not change", key != B.key());
+        B.undo();
+        assertEquals("bad key after undo", key, B.key());
+        Board C = new MutableBoard(B);
+        assertEquals("copies should have equal keys", key, C.key());
+    }
+
+    @Test
+    public void testFeatures() {
+        MutableBoard B = new MutableBoard(4);
+        B.addSpot(RED, 1, 1);
+        B.addSpot(BLUE, 1, 2);
+        B.addSpot(RED, 1, 1);
+        B.addSpot(BLUE, 4, 4);
+        assertEquals("wrong spots", 2, B.spotsOfColor(RED));
+        assertEquals("wrong full squares", 1, B.fullSquares(RED));
+        assertEquals("wrong threatened squares", 1,
+                     B.threatenedSquares(BLUE));
+        assertEquals("wrong border squares", 2, B.borderSquares(RED));
+        assertEquals("wrong border squares", 3, B.borderSquares(BLUE));
+        B.addSpot(RED, 1, 1);
+        checkFeatures(B);
+        B.addSpot(BLUE, 4, 4);
+        B.addSpot(RED, 2, 2);
+        checkFeatures(B);
+        B.undo();
+        B.undo();
+        B.undo();
+        checkFeatures(B);
+        assertEquals("wrong spots after undo", 2, B.spotsOfColor(RED));
+    }
+
+    /** Check that the incrementally maintained features of B agree with
+     *  those of a board built from scratch. */
+    private void checkFeatures(Board B) {
+        Board C = new MutableBoard(B);
+        for (Color color : new Color[] { RED, BLUE }) {
+            assertEquals("bad spots", C.spotsOfColor(color),
+                         B.spotsOfColor(color));
+            assertEquals("bad full squares", C.fullSquares(color),
+                         B.fullSquares(color));
+            assertEquals("bad threatened squares",
+                         C.threatenedSquares(color),
+                         B.threatenedSquares(color));
+            assertEquals("bad border squares", C.borderSquares(color),
+                         B.borderSquares(color));
+        }
+    }
+
+    @Test
+    public void testBitBoard() {
+        Board M = new MutableBoard(5);
+        Board B = new BitBoard(5);
+        Color player = RED;
+        int[] moves = new int[25];
+        for (int k = 0; k < 60 && M.getWinner() == null; k += 1) {
+            int count = M.legalMoves(player, moves);
+            assertEquals("wrong number of moves", count,
+                         B.legalMoves(player, moves));
+            int move = moves[(7 * k) % count];
+            M.addSpot(player, move);
+            B.addSpot(player, move);
+            if (M.getWinner() == null) {
+                assertEquals("boards differ", M.toString(), B.toString());
+                assertEquals("keys differ", M.key(), B.key());
+                assertEquals("cascades differ", M.cascadeSteps(),
+                             B.cascadeSteps());
+                assertEquals("full squares differ", M.fullSquares(player),
+                             B.fullSquares(player));
+                assertEquals("threatened squares differ",
+                             M.threatenedSquares(player),
+                             B.threatenedSquares(player));
+            }
+            player = player.opposite();
+        }
+        for (int k = 0; k < 10; k += 1) {
+            M.undo();
+            B.undo();
+        }
+        assertEquals("boards differ after undo", M.toString(), B.toString());
+        assertEquals("keys differ after undo", M.key(), B.key());
+        assertEquals("bad copy", M.toString(), new BitBoard(M).toString());
+    }
+
+    @Test
+    public void testGiantBoard() {
+        Board M = new MutableBoard(7);
+        Board G = new GiantBoard(7);
+        Color player = RED;
+        int[] moves = new int[49];
+        for (int k = 0; k < 120 && M.getWinner() == null; k += 1) {
+            int count = M.legalMoves(player, moves);
+            assertEquals("wrong number of moves", count,
+                         G.legalMoves(player, moves));
+            int move = moves[(11 * k) % count];
+            M.addSpot(player, move);
+            G.addSpot(player, move);
+            assertEquals("boards differ", M.toString(), G.toString());
+            assertEquals("keys differ", M.key(), G.key());
+            assertEquals("cascades differ", M.cascadeSteps(),
+                         G.cascadeSteps());
+            assertEquals("spots differ", M.spotsOfColor(player),
+                         G.spotsOfColor(player));
+            assertEquals("threatened squares differ",
+                         M.threatenedSquares(player),
+                         G.threatenedSquares(player));
+            player = player.opposite();
+        }
+        for (int k = 0; k < 10; k += 1) {
+            M.undo();
+            G.undo();
+        }
+        assertEquals("boards differ after undo", M.toString(), G.toString());
+        assertEquals("keys differ after undo", M.key(), G.key());
+        assertEquals("full squares differ after undo", M.fullSquares(BLUE),
+                     G.fullSquares(BLUE));
+        assertEquals("bad copy", M.toString(), new GiantBoard(M).toString());
+        assertEquals("wrong row", 3, G.row(20));
+        assertEquals("wrong column", 7, G.col(20));
+        assertEquals("wrong neighbors", 3, G.neighbors(20));
+    }
+
+    @Test
+    public void testSnapshot() {
+        Board B = new MutableBoard(5);
+        int[] moves = { 0, 24, 0, 24, 1, 23, 6, 18, 0 };
+        Color player = RED;
+        for (int move : moves) {
+            B.addSpot(player, move);
+            player = player.opposite();
+        }
+        B.setMoves(moves.length);
+        String before = B.toString();
+        Board copy = new ConstantBoard(B).snapshot();
+        assertEquals("bad snapshot", before, copy.toString());
+        assertEquals("bad move count", 9, copy.numMoves());
+        assertEquals("bad key", B.key(), copy.key());
+        assertEquals("bad features", B.threatenedSquares(RED),
+                     copy.threatenedSquares(RED));
+        copy.addSpot(BLUE, 4);
+        assertEquals("snapshot shares state", before, B.toString());
+        Board bits = new BitBoard(new ConstantBoard(copy)).snapshot();
+        assertEquals("bad BitBoard snapshot", copy.toString(),
+                     bits.toString());
+        B.copy(bits);
+        assertEquals("bad copy", copy.toString(), B.toString());
+        assertEquals("bad copy key", copy.key(), B.key());
+    }
+
+    @Test
+    public void testPositions() {
+        Board B = new MutableBoard(3);
+        Positions.fromText("3:2:1r2b-/---/--1r", B);
+        assertEquals("bad position", 2, B.spots(1, 2));
+        assertEquals("bad position", BLUE, B.color(1, 2));
+        assertEquals("bad position", RED, B.color(3, 3));
+        assertEquals("bad move count", 2, B.numMoves());
+        assertEquals("bad text", "3:2:1r2b-/---/--1r", Positions.toText(B));
+        Board G = new GiantBoard(1);
+        Positions.fromBytes(Positions.toBytes(B), G);
+        assertEquals("bad bytes", B.toString(), G.toString());
+        assertEquals("bad bytes", 2, G.numMoves());
+        assertEquals("wrong size", 8 + 5, Positions.toBytes(B).length);
+    }
+
+    @Test
+    public void testReadDump() throws IOException {
+        Board B = new MutableBoard(4);
+        B.set(1, 1, 2, RED);
+        B.set(3, 2, 4, BLUE);
+        B.set(4, 4, 1, BLUE);
+        Board L = new MutableBoard(1);
+        Positions.readDump(new BufferedReader(new StringReader(B + NL)), L);
+        assertEquals("bad load", B.toString(), L.toString());
+        assertEquals("bad load", B.key(), L.key());
+        assertEquals("bad load", B.fullSquares(BLUE), L.fullSquares(BLUE));
+    }
+
+    @Test(expected = GameException.class)
+    public void testBadPosition() {
+        Positions.fromText("3:0:1r2b-/----/---", new MutableBoard(3));
+    }
+
+    @Test(expected = GameException.class)
+    public void testOversizedPosition() {
+        Positions.fromText("50000:0:-", new MutableBoard(3));
+    }
+
+    @Test
+    public void testGameRecord() throws IOException {
+        Board B = new MutableBoard(4);
+        B.set(0, 2, RED);
+        B.set(5, 1, BLUE);
+        B.setMoves(2);
+        String start = B.toString();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GameRecord.Recorder recorder = new GameRecord.Recorder(bytes, true);
+        recorder.begin(B, true, -42);
+        Random random = new Random(3);
+        int[] legal = new int[16];
+        int[] played = new int[12];
+        int moves;
+        for (moves = 0; moves < 12 && B.getWinner() == null; moves += 1) {
+            Color c = B.whoseMove();
+            played[moves] = legal[random.nextInt(B.legalMoves(c, legal))];
+            B.addSpot(c, played[moves]);
+            B.setMoves(B.numMoves() + 1);
+            recorder.move(played[moves], null);
+        }
+        recorder.close();
+
+        GameRecord.Replayer replayer = new GameRecord.Replayer(
+            new ByteArrayInputStream(bytes.toByteArray()));
+        assertTrue("no game recorded", replayer.next());
+        assertEquals("wrong size", 4, replayer.size());
+        assertTrue("seed not recorded", replayer.seeded());
+        assertEquals("wrong seed", -42, replayer.seed());
+        Board C = new MutableBoard(3);
+        replayer.setUp(C);
+        assertEquals("wrong starting position", start, C.toString());
+        assertEquals("wrong first move", 2, C.numMoves());
+        for (int k = 0; k < moves; k += 1) {
+            assertEquals("wrong move", played[k], replayer.nextMove());
+            C.addSpot(C.whoseMove(), played[k]);
+            C.setMoves(C.numMoves() + 1);
+        }
+        assertEquals("extra moves", -1, replayer.nextMove());
+        assertEquals("wrong final position", B.toString(), C.toString());
+        assertFalse("extra games", replayer.next());
+        replayer.close();
+
+        byte[] truncated =
+            Arrays.copyOf(bytes.toByteArray(), bytes.size() - 2);
+        replayer = new GameRecord.Replayer(
+            new ByteArrayInputStream(truncated));
+        assertTrue("no game recorded", replayer.next());
+        try {
+            replayer.replay(new MutableBoard(4));
+            fail("truncated record replayed");
+        } catch (GameException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test(expected = GameException.class)
+    public void testBadGameRecord() throws IOException {
+        byte[] bytes = { 'J', 'C', 'B', 'K', 1, 0 };
+        new GameRecord.Replayer(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void testOpeningBook() throws IOException {
+        Map<Long, int[]> lines = OpeningBook.openings(3, 3);
+        long[] keys = new long[lines.size()];
+        int i = 0;
+        for (long key : lines.keySet()) {
+            keys[i] = key;
+            i += 1;
+        }
+        Arrays.sort(keys);
+        int[] moves = new int[keys.length];
+        int[] legal = new int[9];
+        for (i = 0; i < keys.length; i += 1) {
+            Board B = openingPosition(3, lines.get(keys[i]));
+            moves[i] = legal[B.legalMoves(B.whoseMove(), legal) - 1];
+        }
+        Path path = Files.createTempFile("book", ".bin");
+        try {
+            OpeningBook.write(path, 3, keys, moves);
+            OpeningBook book = OpeningBook.open(path);
+            assertEquals("wrong size", 3, book.size());
+            assertEquals("wrong number of entries", keys.length,
+                         book.entries());
+            for (i = 0; i < keys.length; i += 1) {
+                Board B = openingPosition(3, lines.get(keys[i]));
+                assertEquals("wrong book move", moves[i],
+                             book.lookup(B, B.whoseMove()));
+            }
+            Board B = openingPosition(3, new int[] { 0, 8, 4 });
+            assertEquals("move for a position not in the book", -1,
+                         book.lookup(B, B.whoseMove()));
+            assertEquals("move for a board of the wrong size", -1,
+                         book.lookup(new MutableBoard(4), RED));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /** Returns an N x N board after the players have made MOVES on it,
+     *  starting with red. */
+    private Board openingPosition(int N, int[] moves) {
+        Board B = new MutableBoard(N);
+        for (int move : moves) {
+            B.addSpot(B.whoseMove(), move);
+            B.setMoves(B.numMoves() + 1);
+        }
+        return B;
+    }
+
+    @Test
+    public void testSmallBoardEndgame() {
+        Board B = new MutableBoard(3);
+        for (int n = 0; n < 8; n += 1) {
+            B.set(n, 1, RED);
+        }
+        B.set(8, 1, BLUE);
+        AI ai = new AI(Game.headless(), RED);
+        ai.setThreads(1);
+        ai.setDepth(2);
+        int move = ai.findMove(B, RED);
+        assertTrue("illegal move", B.isLegal(RED, move));
+        assertTrue("small board was not searched",
+                   ai.lastStats().depth() >= 1);
+        assertEquals("small board was solved", 0,
+                     ai.solvedMoves(true) + ai.solvedMoves(false));
+    }
+
+    @Test
+    public void testAlphaBetaMatchesMinimax() {
+        Random random = new Random(7);
+        AI ai = new AI(Game.headless(), RED);
+        ai.setThreads(1);
+        ai.setTimeBudget(Long.MAX_VALUE / 2000000);
+        ai.setSolver(0, 0);
+        int[] moves = new int[16];
+        for (int trial = 0; trial < 12; trial += 1) {
+            Board B = randomPosition(random, 3 + trial % 2, 6);
+            Color c = B.whoseMove();
+            for (int depth = 1; depth <= 3; depth += 1) {
+                ai.setDepth(depth);
+                ai.clearTable();
+                int move = ai.findMove(B, c);
+                int best = -Integer.MAX_VALUE;
+                int count = B.legalMoves(c, moves);
+                int[] legal = Arrays.copyOf(moves, count);
+                for (int i : legal) {
+                    best = Math.max(best, minimaxValue(ai, B, c, i, depth));
+                }
+                assertEquals("move is worse than minimax's at depth " + depth,
+                             best, minimaxValue(ai, B, c, move, depth));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelSearch() {
+        AI sequential = new AI(Game.headless(), RED);
+        AI parallel = new AI(Game.headless(), RED);
+        sequential.setThreads(1);
+        parallel.setThreads(4);
+        for (AI ai : new AI[] { sequential, parallel }) {
+            ai.setTimeBudget(Long.MAX_VALUE / 2000000);
+            ai.setSolver(0, 0);
+            ai.setDepth(4);
+        }
+        Random random = new Random(11);
+        for (int p = 1; p <= 8; p += 1) {
+            Board B = randomPosition(random, 4 + p % 3, 10);
+            Color c = B.whoseMove();
+            sequential.clearTable();
+            parallel.clearTable();
+            assertEquals("moves differ on position " + p,
+                         sequential.findMove(B, c), parallel.findMove(B, c));
+            assertEquals("scores differ on position " + p,
+                         sequential.lastScore(), parallel.lastScore());
+        }
+    }
+
+    /** Returns a board of size N on which the players have made MOVES
+     *  random moves (chosen by RANDOM) without either winning. */
+    private Board randomPosition(Random random, int N, int moves) {
+        int[] legal = new int[N * N];
+        while (true) {
+            Board B = new MutableBoard(N);
+            for (int k = 0; k < moves && B.getWinner() == null; k += 1) {
+                Color c = B.whoseMove();
+                int count = B.legalMoves(c, legal);
+                B.addSpot(c, legal[random.nextInt(count)]);
+                B.setMoves(B.numMoves() + 1);
+            }
+            if (B.getWinner() == null) {
+                return B;
+            }
+        }
+    }
+
+    /** Returns the value to C of moving onto square #MOVE of B according
+     *  to a plain minimax search to DEPTH plies (including MOVE) that
+     *  values leaves with AI's evaluation. */
+    private int minimaxValue(AI ai, Board B, Color c, int move, int depth) {
+        B.addSpot(c, move);
+        int value = -negamax(ai, B, c.opposite(), depth - 1);
+        B.undo();
+        return value;
+    }
+
+    /** Returns the minimax value of B to C, who is to move, searching
+     *  DEPTH plies and valuing leaves with AI's evaluation. */
+    private int negamax(AI ai, Board B, Color c, int depth) {
+        Color winner = B.getWinner();
+        if (winner != null) {
+            return winner == c ? WIN : -WIN;
+        } else if (depth == 0) {
+            return ai.evaluate(B, c);
+        }
+        int[] moves = new int[B.size() * B.size()];
+        int count = B.legalMoves(c, moves);
+        int best = -Integer.MAX_VALUE;
+        for (int k = 0; k < count; k += 1) {
+            best = Math.max(best, minimaxValue(ai, B, c, moves[k], depth));
+        }
+        return best;
+    }
+
+    /** The value of a won position in negamax. */
+    private static final int WIN = Integer.MAX_VALUE - 2;
+
+    @Test
+    public void testSolverProvesWin() {
+        Board B = new MutableBoard(3);
+        Positions.fromText("3:16:1b3r1r/3b1r3r/1r2r1r", B);
+        assertFalse("red can win too quickly", winsWithin(B, RED, 3));
+        ProofNumberSolver solver = new ProofNumberSolver(1 << 16);
+        assertEquals("win not proved", ProofNumberSolver.WIN,
+                     solver.solve(B, RED, Long.MAX_VALUE));
+        int move = solver.bestMove();
+        assertTrue("illegal move", B.isLegal(RED, move));
+        B.addSpot(RED, move);
+        assertTrue("move does not win", losesWithin(B, BLUE, 4));
+    }
+
+    /** Returns true iff C, to move on B, can win within PLIES plies. */
+    private boolean winsWithin(Board B, Color c, int plies) {
+        int[] moves = new int[B.size() * B.size()];
+        int count = B.legalMoves(c, moves);
+        for (int k = 0; k < count; k += 1) {
+            B.addSpot(c, moves[k]);
+            boolean won = B.getWinner() == c
+                || (plies > 2 && losesWithin(B, c.opposite(), plies - 1));
+            B.undo();
+            if (won) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns true iff C, to move on B, loses within PLIES plies whatever
+     *  C does. */
+    private boolean losesWithin(Board B, Color c, int plies) {
+        int[] moves = new int[B.size() * B.size()];
+        int count = B.legalMoves(c, moves);
+        for (int k = 0; k < count; k += 1) {
+            B.addSpot(c, moves[k]);
+            boolean lost = B.getWinner() == null
+                && winsWithin(B, c.opposite(), plies - 1);
+            B.undo();
+            if (!lost) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void testLegalMoves() {
+        Board B = new MutableBoard(9);
+        B.addSpot(RED, 1, 1);
+        B.addSpot(BLUE, 9, 9);
+        B.addSpot(RED, 1, 1);
+        B.addSpot(BLUE, 8, 9);
+        B.addSpot(BLUE, 9, 9);
+        int[] moves = new int[81];
+        int count = B.legalMoves(RED, moves);
+        assertEquals("wrong number of moves", 79, count);
+        for (int k = 0, i = 0; i < 81; i += 1) {
+            if (B.isLegal(RED, i)) {
+                assertEquals("wrong move", i, moves[k]);
+                k += 1;
+            }
+        }
+        B.undo();
+        assertEquals("wrong number of moves after undo", 79,
+                     B.legalMoves(RED, moves));
+        assertEquals("wrong number of moves after undo", 80,
+                     B.legalMoves(BLUE, moves));
+    }
+
     @Test
     public void testisLegal() {
         Board b = new MutableBoard(5);
@@ -35,11 +35,14 @@ enum Color {
     /** Return my color's lowercase name. */
     @Override
     public String toString() {
-        return super.toString().toLowerCase();
+        return _lowerName;
     }
 
     /** Return my color's uppercase name. */
     public String toCapitalizedString() {
         return super.toString().charAt(0) + toString().substring(1);
     }
+
+    /** My lowercase name, computed once. */
+    private final String _lowerName = name().toLowerCase();
 }
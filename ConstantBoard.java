@@ -17,6 +17,31 @@ class ConstantBoard extends Board {
         return _board.size();
     }
 
+    @Override
+    int row(int n) {
+        return _board.row(n);
+    }
+
+    @Override
+    int col(int n) {
+        return _board.col(n);
+    }
+
+    @Override
+    int neighbors(int r, int c) {
+        return _board.neighbors(r, c);
+    }
+
+    @Override
+    int neighbors(int n) {
+        return _board.neighbors(n);
+    }
+
+    @Override
+    Geometry geometry() {
+        return _board.geometry();
+    }
+
     @Override
     int spots(int r, int c) {
         return _board.spots(r, c);
@@ -52,6 +77,11 @@ class ConstantBoard extends Board {
         return _board.isLegal(player, r, c);
     }
 
+    @Override
+    int legalMoves(Color player, int[] moves) {
+        return _board.legalMoves(player, moves);
+    }
+
     @Override
     boolean isLegal(Color player) {
         return _board.isLegal(player);
@@ -62,6 +92,51 @@ class ConstantBoard extends Board {
         return _board.numOfColor(color);
     }
 
+    @Override
+    int spotsOfColor(Color color) {
+        return _board.spotsOfColor(color);
+    }
+
+    @Override
+    int fullSquares(Color color) {
+        return _board.fullSquares(color);
+    }
+
+    @Override
+    int threatenedSquares(Color color) {
+        return _board.threatenedSquares(color);
+    }
+
+    @Override
+    int borderSquares(Color color) {
+        return _board.borderSquares(color);
+    }
+
+    @Override
+    int cascadeFlips() {
+        return _board.cascadeFlips();
+    }
+
+    @Override
+    int cascadeSteps() {
+        return _board.cascadeSteps();
+    }
+
+    @Override
+    long key() {
+        return _board.key();
+    }
+
+    @Override
+    Board snapshot() {
+        return _board.snapshot();
+    }
+
+    @Override
+    Board backing() {
+        return _board.backing();
+    }
+
     @Override
     public boolean equals(Object obj) {
         return _board.equals(obj);
@@ -11,6 +11,28 @@ class Defaults {
     /** Default board size. */
     static final int BOARD_SIZE = 6;
 
-    /** Default depth for minimax function. */
-    static final int DEPTH = 4;
+    /** Default limit on the depth of the AI's search. */
+    static final int DEPTH = 32;
+
+    /** Default time (in milliseconds) the AI may spend choosing a move. */
+    static final long TIME_BUDGET = 1000;
+
+    /** Default number of threads the AI searches with. */
+    static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    /** Default limit on the number of positions in the search tree of a
+     *  MonteCarloPlayer. */
+    static final int MCTS_NODES = 1 << 20;
+
+    /** The AI tries to solve positions outright once at most this many
+     *  squares are not held by the player holding the most. */
+    static final int ENDGAME_SQUARES = 8;
+
+    /** Default limit on the number of positions in the AI's endgame
+     *  solver. */
+    static final int SOLVER_NODES = 1 << 19;
+
+    /** Log (base 2) of the number of entries in the AI's transposition
+     *  table. */
+    static final int TT_BITS = 18;
 }
@@ -0,0 +1,53 @@
+package jumpCube;
+
+/** A static evaluation function for positions, used by the AI at the
+ *  leaves of its search.  The value of a position is a weighted sum of
+ *  differences between the two players in features that Board keeps up to
+ *  date as moves are made, so evaluating takes constant time on a
+ *  MutableBoard.
+ *  @author Brian Ha
+ */
+class Evaluator {
+
+    /** An Evaluator with the default weights. */
+    Evaluator() {
+        this(10, 1, 2, -4, 1);
+    }
+
+    /** An Evaluator that weights the differences in squares owned by
+     *  SQUARES, in spots by SPOTS, in full squares by FULL, in squares
+     *  next to an opposing full square by THREATENED, and in corner and
+     *  edge squares by BORDER. */
+    Evaluator(int squares, int spots, int full, int threatened, int border) {
+        _squares = squares;
+        _spots = spots;
+        _full = full;
+        _threatened = threatened;
+        _border = border;
+    }
+
+    /** Returns the value of BOARD for C: positive if C is ahead. */
+    int evaluate(Board board, Color c) {
+        return value(board, c) - value(board, c.opposite());
+    }
+
+    /** Returns the weighted sum of the features of BOARD for C alone. */
+    private int value(Board board, Color c) {
+        return _squares * board.numOfColor(c)
+            + _spots * board.spotsOfColor(c)
+            + _full * board.fullSquares(c)
+            + _threatened * board.threatenedSquares(c)
+            + _border * board.borderSquares(c);
+    }
+
+    /** Weight of the number of squares owned. */
+    private final int _squares;
+    /** Weight of the number of spots owned. */
+    private final int _spots;
+    /** Weight of the number of full squares. */
+    private final int _full;
+    /** Weight of the number of squares exposed to opposing full squares. */
+    private final int _threatened;
+    /** Weight of the number of corner and edge squares. */
+    private final int _border;
+}
@@ -1,10 +1,16 @@
 package jumpCube;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.Writer;
 import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 
-import java.util.Scanner;
 import java.util.Random;
 import java.util.ArrayList;
 
@@ -24,20 +30,56 @@ class Game {
      *  INPUT, PROMPTS, OUTPUT, and ERROROUTPUT, and is responsible for
      *  closing them when its play method returns. */
     Game(Reader input, Writer prompts, Writer output, Writer errorOutput) {
+        this(input, prompts, output, errorOutput, false, false);
+    }
+
+    /** A new Game as for the public constructor, except that if BATCH,
+     *  its output is not flushed until play returns, and the end of
+     *  INPUT ends the session rather than the program, and that if
+     *  HEADLESS, neither of its own players is an AI. */
+    private Game(Reader input, Writer prompts, Writer output,
+                 Writer errorOutput, boolean batch, boolean headless) {
+        _batch = batch;
         _board = new MutableBoard(Defaults.BOARD_SIZE);
         _readonlyBoard = new ConstantBoard(_board);
-        _prompter = new PrintWriter(prompts, true);
-        _inp = new Scanner(input);
-        _inp.useDelimiter("(?m)$|^|\\p{Blank}+");
-        _out = new PrintWriter(output, true);
-        _err = new PrintWriter(errorOutput, true);
+        _prompter = new PrintWriter(prompts, !batch);
+        if (input instanceof BufferedReader) {
+            _inp = (BufferedReader) input;
+        } else {
+            _inp = new BufferedReader(input);
+        }
+        _out = new PrintWriter(output, !batch);
+        _err = new PrintWriter(errorOutput, !batch);
         _playing = false;
         _gameOn = true;
         _player1 = new HumanPlayer(this, RED);
-        _player2 = new AI(this, BLUE);
+        if (headless) {
+            _player2 = new HumanPlayer(this, BLUE);
+        } else {
+            _player2 = new AI(this, BLUE);
+        }
         _cline = new ArrayList<String>();
     }
 
+    /** Returns a new Game that runs the script of commands and moves in
+     *  INPUT without prompting, writing its output to OUTPUT and its
+     *  error messages to ERROROUTPUT (which may be the same Writer)
+     *  only as they fill their buffers or when play returns. */
+    static Game batch(Reader input, Writer output, Writer errorOutput) {
+        return new Game(input, Writer.nullWriter(), output, errorOutput,
+                        true, false);
+    }
+
+    /** Returns a new Game with no input whose output is discarded, for
+     *  players that are driven directly rather than by commands.  Its
+     *  own players are not AIs, so that it allocates no search
+     *  tables. */
+    static Game headless() {
+        return new Game(new StringReader(""), Writer.nullWriter(),
+                        Writer.nullWriter(), Writer.nullWriter(), false,
+                        true);
+    }
+
     /** Returns a readonly view of the game board.  This board remains valid
      *  throughout the session. */
     Board getBoard() {
@@ -80,15 +122,15 @@ class Game {
      *  normal; any positive quantity indicates an error.  */
     int play() {
         _out.println("Welcome to " + Defaults.VERSION);
-        _out.flush();
+        flush();
         while (_gameOn) {
             if (_playing) {
                 checkForWin();
                 if (_board.getWinner() == null) {
                     if (_board.whoseMove() == RED) {
-                        _player1.makeMove();
+                        takeTurn(_player1, _player2);
                     } else {
-                        _player2.makeMove();
+                        takeTurn(_player2, _player1);
                     }
                 }
             } else {
@@ -97,11 +139,43 @@ class Game {
                 }
             }
         }
-        _inp.close();
+        setRecorder(null);
+        try {
+            _inp.close();
+        } catch (IOException excp) {
+            /* Ignore IOException */
+        }
         _prompter.close();
         _out.close();
         _err.close();
-        return 0;
+        return _batch && _errors > 0 ? 1 : 0;
+    }
+
+    /** Returns the number of moves made in this session. */
+    int movesPlayed() {
+        return _movesPlayed;
+    }
+
+    /** Returns the number of errors reported in this session. */
+    int errors() {
+        return _errors;
+    }
+
+    /** Have PLAYER make a move.  If PLAYER is a HumanPlayer and pondering
+     *  is on, OPPONENT, if it is an AI, ponders while PLAYER thinks. */
+    private void takeTurn(Player player, Player opponent) {
+        if (_ponder && player instanceof HumanPlayer
+            && opponent instanceof AI) {
+            AI ai = (AI) opponent;
+            ai.ponder(_board, player.getColor());
+            try {
+                player.makeMove();
+            } finally {
+                ai.stopPondering();
+            }
+        } else {
+            player.makeMove();
+        }
     }
 
     /** Get a move from my input and place its row and column in
@@ -128,21 +202,29 @@ class Game {
             && _board.isLegal(clr, r, c)) {
             _board.addSpot(clr, r, c);
             _board.setMoves(_board.numMoves() + 1);
+            _movesPlayed += 1;
+            recordMove(_board.sqNum(r, c), clr == RED ? _player1 : _player2);
             if (clr == RED) {
-                if (_player1 instanceof AI) {
+                if (!(_player1 instanceof HumanPlayer)) {
                     String str = clr.toString();
                     _out.println(str.substring(0, 1).toUpperCase()
                                  + str.substring(1) + " moves "
                                  + r + " " + c + ".");
-                    _out.flush();
+                    if (_showStats) {
+                        printStats(_player1);
+                    }
+                    flush();
                 }
             } else {
-                if (_player2 instanceof AI) {
+                if (!(_player2 instanceof HumanPlayer)) {
                     String str = clr.toString();
                     _out.println(str.substring(0, 1).toUpperCase()
                                  + str.substring(1) + " moves "
                                  + r + " " + c + ".");
-                    _out.flush();
+                    if (_showStats) {
+                        printStats(_player2);
+                    }
+                    flush();
                 }
             }
             if (_onGUI) {
@@ -178,6 +260,7 @@ class Game {
     private void checkForWin() {
         if (_playing && _board.getWinner() != null) {
             _playing = false;
+            endRecord();
             announceWinner();
             if (_onGUI) {
                 _gui.announceWinner((jumpCube.Color) _board.getWinner());
@@ -190,15 +273,24 @@ class Game {
         String str = _board.getWinner().toString();
         _out.println(str.substring(0, 1).toUpperCase()
                      + str.substring(1) + " wins.");
-        _out.flush();
+        flush();
     }
 
-    /** Make PLAYER an AI for subsequent moves. */
-    private void setAuto(Color player) {
+    /** Make PLAYER an automated player for subsequent moves: a
+     *  MonteCarloPlayer if MONTECARLO, and otherwise an AI. */
+    private void setAuto(Color player, boolean monteCarlo) {
+        Player auto;
+        if (monteCarlo) {
+            auto = new MonteCarloPlayer(this, player);
+        } else {
+            auto = new AI(this, player);
+            ((AI) auto).setOpeningBook(_book);
+        }
+        configure(auto);
         if (player == RED) {
-            _player1 = new AI(this, player);
+            _player1 = auto;
         } else {
-            _player2 = new AI(this, player);
+            _player2 = auto;
         }
     }
 
@@ -215,6 +307,7 @@ class Game {
      *  state. */
     private void clear() {
         _playing = false;
+        endRecord();
         if (_onGUI) {
             _gui.enableStart();
         }
@@ -227,7 +320,31 @@ class Game {
 
     /** Print the current board using standard board-dump format. */
     private void dump() {
-        _out.println(_board);
+        _board.dump(_out);
+        _out.println();
+        flush();
+    }
+
+    /** Print the search statistics of the last move of PLAYER, if it is
+     *  an AI. */
+    private void printStats(Player player) {
+        if (player instanceof AI) {
+            _out.println(player.getColor().toCapitalizedString() + ": "
+                         + ((AI) player).lastStats());
+        }
+    }
+
+    /** Print the counts of the special moves PLAYER has made since it
+     *  became automated, if it is an AI. */
+    private void printTotals(Player player) {
+        if (player instanceof AI) {
+            AI ai = (AI) player;
+            _out.printf("%s: %d book moves, %d ponder hits, "
+                        + "%d solved wins, %d solved losses%n",
+                        player.getColor().toCapitalizedString(),
+                        ai.bookMoves(), ai.ponderHits(),
+                        ai.solvedMoves(true), ai.solvedMoves(false));
+        }
     }
 
     /** Print a help message. */
@@ -238,6 +355,7 @@ class Game {
     /** Stop any current game and set the move number to N. */
     private void setMoveNumber(int n) {
         _playing = false;
+        endRecord();
         if (_onGUI) {
             _gui.enableStart();
         }
@@ -245,8 +363,10 @@ class Game {
     }
 
     /** Seed the random-number generator with SEED. */
-    private void setSeed(long seed) {
+    void setSeed(long seed) {
         _random.setSeed(seed);
+        _seed = seed;
+        _seeded = true;
     }
 
     /** Place SPOTS spots on square R:C and color the square red or
@@ -267,6 +387,7 @@ class Game {
      *  with numMoves() == 0.  */
     private void setSize(int n) {
         _playing = false;
+        endRecord();
         if (_onGUI) {
             _gui.enableStart();
         }
@@ -277,6 +398,13 @@ class Game {
      *  immediately print a win message and end the game. */
     private void restartGame() {
         _playing = true;
+        if (_recorder != null) {
+            try {
+                _recorder.begin(_board, _seeded, _seed);
+            } catch (IOException excp) {
+                recordError(excp);
+            }
+        }
         checkForWin();
     }
 
@@ -290,25 +418,17 @@ class Game {
         _move[1] = c;
     }
 
-    /** Returns a color (player) name from _inp: either RED or BLUE.
-     *  Throws an exception if not present. */
-    private Color readColor() {
-        return Color.parseColor(_inp.next("[rR][eE][dD]|[Bb][Ll][Uu][Ee]"));
-    }
-
     /** Read and execute one command.  Leave the input at the start of
      *  a line, if there is more input. */
     private void readExecuteCommand() {
-        _cline.clear();
-        String str = _inp.nextLine();
-        str = str.trim();
-        String[] arr = str.split("\\s+");
-        for (int i = 0; i < arr.length; i++) {
-            _cline.add(arr[i]);
+        tokenize(_line);
+        _line = null;
+        if (_cline.isEmpty()) {
+            return;
         }
         String temp1 = _cline.get(0);
-        if (_cline.size() == 2 && temp1.matches("-?\\d+")
-            && _cline.get(1).matches("-?\\d+")) {
+        if (_cline.size() == 2 && isNumber(temp1)
+            && isNumber(_cline.get(1))) {
             if (_playing) {
                 saveMove(Integer.parseInt(temp1),
                          Integer.parseInt(_cline.get(1)));
@@ -321,6 +441,45 @@ class Game {
         }
     }
 
+    /** Set _cline to the words of LINE, which are separated by
+     *  whitespace. */
+    private void tokenize(String line) {
+        _cline.clear();
+        int n = line.length();
+        int i = 0;
+        while (true) {
+            while (i < n && Character.isWhitespace(line.charAt(i))) {
+                i += 1;
+            }
+            if (i == n) {
+                return;
+            }
+            int start = i;
+            while (i < n && !Character.isWhitespace(line.charAt(i))) {
+                i += 1;
+            }
+            _cline.add(line.substring(start, i));
+        }
+    }
+
+    /** Returns true iff WORD is an optionally signed decimal integer
+     *  (the words matched by "-?\\d+", checked without a regular
+     *  expression). */
+    private static boolean isNumber(String word) {
+        int start = word.startsWith("-") ? 1 : 0;
+        int n = word.length();
+        if (n == start) {
+            return false;
+        }
+        for (int i = start; i < n; i += 1) {
+            char c = word.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /** Gather arguments and execute command CMND.  Throws GameException
      *  on errors. */
     private void executeCommand(String cmnd) {
@@ -360,6 +519,9 @@ class Game {
         case "dump":
             dump();
             break;
+        case "load":
+            loadHelper();
+            break;
         case "seed":
             if (_cline.size() >= 2) {
                 seedHelper();
@@ -370,6 +532,24 @@ class Game {
         case "help":
             help();
             break;
+        case "stats":
+            statsHelper();
+            break;
+        case "ponder":
+            ponderHelper();
+            break;
+        case "book":
+            bookHelper();
+            break;
+        case "record":
+            recordHelper();
+            break;
+        case "time":
+            timeHelper();
+            break;
+        case "threads":
+            threadsHelper();
+            break;
         default:
             reportError("bad command: '%s'", cmnd);
         }
@@ -397,9 +577,15 @@ class Game {
     public void autoHelper() {
         if (_cline.size() >= 2) {
             String str1 = _cline.get(1);
-            if (str1.toLowerCase().equals("red")
+            String kind = "minimax";
+            if (_cline.size() >= 3) {
+                kind = _cline.get(2).toLowerCase();
+            }
+            if (!kind.equals("minimax") && !kind.equals("mcts")) {
+                reportError("Invalid player type %s was given.", kind);
+            } else if (str1.toLowerCase().equals("red")
                 || str1.toLowerCase().equals("blue")) {
-                setAuto(parseColor(str1));
+                setAuto(parseColor(str1), kind.equals("mcts"));
                 if (_onGUI) {
                     _gui.drawBoard();
                 }
@@ -414,7 +600,7 @@ class Game {
     /** Helper move function. */
     public void moveHelper() {
         String str4 = _cline.get(1);
-        if (str4.matches("-?\\d+") && Integer.parseInt(str4) > 0) {
+        if (isNumber(str4) && Integer.parseInt(str4) > 0) {
             setMoveNumber(Integer.parseInt(str4) - 1);
             if (_onGUI) {
                 _gui.drawBoard();
@@ -428,7 +614,7 @@ class Game {
     public void sizeHelper() {
         if (_cline.size() >= 2) {
             String str3 = _cline.get(1);
-            if (str3.matches("-?\\d+") && Integer.parseInt(str3) > 0) {
+            if (isNumber(str3) && Integer.parseInt(str3) > 0) {
                 setSize(Integer.parseInt(str3));
                 if (_onGUI) {
                     _gui.updateBoard();
@@ -449,8 +635,8 @@ class Game {
             String str7 = _cline.get(3);
             String str8 = _cline.get(4);
             if (_board.exists(Integer.parseInt(str5), Integer.parseInt(str6))
-                && str5.matches("-?\\d+") && str6.matches("-?\\d+")
-                && str7.matches("-?\\d+")
+                && isNumber(str5) && isNumber(str6)
+                && isNumber(str7)
                 && (str8.toLowerCase().equals("r")
                     || str8.toLowerCase().equals("b"))) {
                 if (str8.toLowerCase().equals("r")) {
@@ -461,6 +647,7 @@ class Game {
                              Integer.parseInt(str7), "blue");
                 }
                 _playing = false;
+                endRecord();
                 if (_onGUI) {
                     _gui.enableStart();
                 }
@@ -476,38 +663,298 @@ class Game {
         }
     }
 
+    /** Helper load function. */
+    public void loadHelper() {
+        if (_cline.size() == 1) {
+            try {
+                load(_inp);
+            } catch (IOException excp) {
+                reportError("Could not read position: %s",
+                            excp.getMessage());
+            }
+            return;
+        }
+        String str14 = _cline.get(1);
+        try (BufferedReader file =
+                 Files.newBufferedReader(Paths.get(str14))) {
+            load(file);
+        } catch (IOException | InvalidPathException excp) {
+            reportError("Could not read position %s.", str14);
+        }
+    }
+
+    /** Stop any current game and set the board to the position dumped
+     *  in the next lines of INPUT, keeping the current move number.  The
+     *  board is unchanged if the dump is malformed. */
+    private void load(BufferedReader input) throws IOException {
+        MutableBoard position = new MutableBoard(1);
+        try {
+            Positions.readDump(input, position);
+        } catch (GameException excp) {
+            reportError("%s", excp.getMessage());
+            return;
+        }
+        _playing = false;
+        endRecord();
+        if (_onGUI) {
+            _gui.enableStart();
+        }
+        int moves = _board.numMoves();
+        _board.copy(position);
+        _board.setMoves(moves);
+        if (_onGUI) {
+            _gui.updateBoard();
+        }
+    }
+
+    /** Helper stats function. */
+    public void statsHelper() {
+        if (_cline.size() >= 2) {
+            String str10 = _cline.get(1).toLowerCase();
+            if (str10.equals("on") || str10.equals("off")) {
+                _showStats = str10.equals("on");
+            } else {
+                reportError("Invalid option %s was given.", str10);
+            }
+        } else {
+            printStats(_player1);
+            printTotals(_player1);
+            printStats(_player2);
+            printTotals(_player2);
+        }
+    }
+
+    /** Helper ponder function. */
+    public void ponderHelper() {
+        if (_cline.size() >= 2) {
+            String str11 = _cline.get(1).toLowerCase();
+            if (str11.equals("on") || str11.equals("off")) {
+                _ponder = str11.equals("on");
+            } else {
+                reportError("Invalid option %s was given.", str11);
+            }
+        } else {
+            reportError("Invalid number of arguments given.");
+        }
+    }
+
+    /** Helper book function. */
+    public void bookHelper() {
+        if (_cline.size() >= 2) {
+            String str12 = _cline.get(1);
+            if (str12.toLowerCase().equals("off")) {
+                setOpeningBook(null);
+                return;
+            }
+            try {
+                setOpeningBook(OpeningBook.open(Paths.get(str12)));
+            } catch (IOException | InvalidPathException excp) {
+                reportError("Could not read book %s.", str12);
+            } catch (GameException excp) {
+                reportError("%s", excp.getMessage());
+            }
+        } else {
+            reportError("Invalid number of arguments given.");
+        }
+    }
+
+    /** Have the AI players, now and later, use BOOK as their opening
+     *  book (none if BOOK is null). */
+    private void setOpeningBook(OpeningBook book) {
+        _book = book;
+        if (_player1 instanceof AI) {
+            ((AI) _player1).setOpeningBook(book);
+        }
+        if (_player2 instanceof AI) {
+            ((AI) _player2).setOpeningBook(book);
+        }
+    }
+
+    /** Helper record function. */
+    public void recordHelper() {
+        if (_cline.size() >= 2) {
+            String str13 = _cline.get(1);
+            if (str13.toLowerCase().equals("off")) {
+                setRecorder(null);
+                return;
+            }
+            boolean stats = _cline.size() >= 3
+                && _cline.get(2).toLowerCase().equals("stats");
+            if (_cline.size() >= 3 && !stats) {
+                reportError("Invalid option %s was given.", _cline.get(2));
+                return;
+            }
+            try {
+                OutputStream file = Files.newOutputStream(Paths.get(str13));
+                setRecorder(new GameRecord.Recorder(file, stats));
+            } catch (IOException | InvalidPathException excp) {
+                reportError("Could not write game record %s.", str13);
+            }
+        } else {
+            reportError("Invalid number of arguments given.");
+        }
+    }
+
+    /** Record the games started from now on with RECORDER (none if
+     *  RECORDER is null), closing the previous recorder, if any. */
+    private void setRecorder(GameRecord.Recorder recorder) {
+        if (_recorder != null) {
+            try {
+                _recorder.close();
+            } catch (IOException excp) {
+                reportError("Could not write game record: %s",
+                            excp.getMessage());
+            }
+        }
+        _recorder = recorder;
+    }
+
+    /** Add a move by PLAYER to square #N to the record of the current
+     *  game, if one is being recorded. */
+    private void recordMove(int n, Player player) {
+        if (_recorder != null && _recorder.recording()) {
+            SearchStats stats =
+                player instanceof AI ? ((AI) player).lastStats() : null;
+            try {
+                _recorder.move(n, stats);
+            } catch (IOException excp) {
+                recordError(excp);
+            }
+        }
+    }
+
+    /** End the record of the current game, if one is being recorded. */
+    private void endRecord() {
+        if (_recorder != null) {
+            try {
+                _recorder.end();
+            } catch (IOException excp) {
+                recordError(excp);
+            }
+        }
+    }
+
+    /** Report the failure EXCP to write a game record, and stop
+     *  recording. */
+    private void recordError(IOException excp) {
+        reportError("Could not write game record: %s", excp.getMessage());
+        try {
+            _recorder.close();
+        } catch (IOException ignored) {
+            /* Ignore IOException */
+        }
+        _recorder = null;
+    }
+
+    /** Helper time function. */
+    public void timeHelper() {
+        if (_cline.size() >= 2) {
+            String str15 = _cline.get(1);
+            long millis;
+            try {
+                millis = Long.parseLong(str15);
+            } catch (NumberFormatException excp) {
+                millis = 0;
+            }
+            if (millis >= 1 && millis <= Integer.MAX_VALUE) {
+                _timeBudget = millis;
+                configure(_player1);
+                configure(_player2);
+            } else {
+                reportError("Invalid time %s was given.", str15);
+            }
+        } else {
+            reportError("Invalid number of arguments given.");
+        }
+    }
+
+    /** Helper threads function. */
+    public void threadsHelper() {
+        if (_cline.size() >= 2) {
+            String str16 = _cline.get(1);
+            int threads;
+            try {
+                threads = Integer.parseInt(str16);
+            } catch (NumberFormatException excp) {
+                threads = 0;
+            }
+            if (threads >= 1) {
+                _threads = threads;
+                configure(_player1);
+                configure(_player2);
+            } else {
+                reportError("Invalid number of threads %s was given.",
+                            str16);
+            }
+        } else {
+            reportError("Invalid number of arguments given.");
+        }
+    }
+
+    /** Give PLAYER, if it is automated, the current time budget and
+     *  number of threads. */
+    private void configure(Player player) {
+        if (player instanceof AI) {
+            ((AI) player).setTimeBudget(_timeBudget);
+            ((AI) player).setThreads(_threads);
+        } else if (player instanceof MonteCarloPlayer) {
+            ((MonteCarloPlayer) player).setTimeBudget(_timeBudget);
+            ((MonteCarloPlayer) player).setThreads(_threads);
+        }
+    }
+
     /** Helper seed function. */
     public void seedHelper() {
         String str9 = _cline.get(1);
-        if (str9.matches("-?\\d+")) {
+        if (isNumber(str9)) {
             setSeed(Long.parseLong(str9));
         } else {
             reportError("Invalid seed %s was given.", str9);
         }
     }
 
-    /** Print a prompt and wait for input. Returns true iff there is another
-     *  token. */
+    /** Print a prompt and wait for input, reading the next line into
+     *  _line.  Returns true iff there is another line.  At the end of
+     *  the input, ends the session in batch mode and otherwise exits. */
     private boolean promptForNext() {
-        if (!_playing) {
-            _prompter.print("> ");
-            _prompter.flush();
-        } else {
-            _prompter.print(_board.whoseMove().toString() + "> ");
+        if (!_batch) {
+            if (!_playing) {
+                _prompter.print("> ");
+            } else {
+                _prompter.print(_board.whoseMove().toString() + "> ");
+            }
             _prompter.flush();
         }
-        boolean b = _inp.hasNextLine();
-        if (b) {
-            return b;
+        try {
+            _line = _inp.readLine();
+        } catch (IOException excp) {
+            reportError("Could not read input: %s", excp.getMessage());
+            _line = null;
+        }
+        if (_line != null) {
+            return true;
+        } else if (_batch) {
+            _gameOn = false;
+            _playing = false;
+            return false;
         } else {
             System.exit(0);
-            return b;
+            return false;
+        }
+    }
+
+    /** Flush my output, except in batch mode, where it is flushed when
+     *  the session ends. */
+    private void flush() {
+        if (!_batch) {
+            _out.flush();
         }
     }
 
     /** Send an error message to the user formed from arguments FORMAT
      *  and ARGS, whose meanings are as for printf. */
     void reportError(String format, Object... args) {
+        _errors += 1;
         _err.print("Error: ");
         _err.printf(format, args);
         _err.println();
@@ -515,9 +962,14 @@ class Game {
 
     /** Writer on which to print prompts for input. */
     private final PrintWriter _prompter;
-    /** Scanner from current game input.  Initialized to return
-     *  newlines as tokens. */
-    private final Scanner _inp;
+    /** Current game input. */
+    private final BufferedReader _inp;
+    /** The line read by the last promptForNext, if not yet executed. */
+    private String _line;
+    /** True iff this Game runs a script in batch mode. */
+    private final boolean _batch;
+    /** Numbers of moves made and errors reported in this session. */
+    private int _movesPlayed, _errors;
     /** Outlet for responses to the user. */
     private final PrintWriter _out;
     /** Outlet for error responses to the user. */
@@ -550,6 +1002,24 @@ class Game {
      *  here to avoid allocations. */
     private final int[] _move = new int[2];
 
+    /** True iff an AI searches while its human opponent is thinking. */
+    private boolean _ponder;
+    /** Time automated players may take for each move, in
+     *  milliseconds. */
+    private long _timeBudget = Defaults.TIME_BUDGET;
+    /** Number of threads automated players search with. */
+    private int _threads = Defaults.THREADS;
+    /** Opening book used by AI players, or null. */
+    private OpeningBook _book;
+    /** Writes the records of games as they are played, or null. */
+    private GameRecord.Recorder _recorder;
+    /** The last seed given to _random, if _seeded. */
+    private long _seed;
+    /** True iff _random has been given a seed. */
+    private boolean _seeded;
+    /** True iff the search statistics of each AI move are printed. */
+    private boolean _showStats;
+
     /** If this game is using GUI. */
     private boolean _onGUI;
 
@@ -0,0 +1,448 @@
+package jumpCube;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static jumpCube.Color.*;
+import static jumpCube.GameException.error;
+
+/** Compact binary records of games, written as they are played and
+ *  replayed straight onto a Board, with no parsing of commands.
+ *
+ *  A record file holds MAGIC and VERSION (a big-endian int and a byte)
+ *  followed by any number of game records.  All other numbers are
+ *  unsigned varints: seven bits per byte, least significant first, with
+ *  the high bit set on every byte but the last.  A game record is
+ *    flags          SEEDED and/or SETUP,
+ *    size           the board size,
+ *    seed           (if SEEDED) the random seed, zigzag-encoded,
+ *    moves          the value of numMoves() at the start,
+ *    setup          (if SETUP) the number of occupied squares, then for
+ *                   each, in increasing order, its distance from the
+ *                   last one (or from -1) and SPOTS * 2 + (1 if blue),
+ *  followed by one entry per move, (SQUARE + 1) * 2 + (1 if stats
+ *  follow), where the stats are the depth, nodes, and microseconds of
+ *  the AI's search, and a final 0.  A move on a 6x6 board takes one
+ *  byte.
+ *
+ *  Usage: java jumpCube.GameRecord FILE... replays every game in the
+ *  FILEs and reports their results and the rate of replay.
+ *  @author Brian Ha
+ */
+final class GameRecord {
+
+    /** Replay the files named by ARGS (see the class comment). */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: java jumpCube.GameRecord FILE...");
+            System.exit(1);
+        }
+        MutableBoard board = new MutableBoard(Defaults.BOARD_SIZE);
+        long start = System.nanoTime();
+        long games, moves;
+        games = moves = 0;
+        for (String name : args) {
+            int red, blue, unfinished;
+            red = blue = unfinished = 0;
+            long fileMoves = 0;
+            try (Replayer records =
+                     new Replayer(Files.newInputStream(Paths.get(name)))) {
+                while (records.next()) {
+                    fileMoves += records.replay(board);
+                    Color winner = board.getWinner();
+                    if (winner == RED) {
+                        red += 1;
+                    } else if (winner == BLUE) {
+                        blue += 1;
+                    } else {
+                        unfinished += 1;
+                    }
+                }
+            } catch (IOException | GameException excp) {
+                System.err.printf("Error: %s: %s%n", name, excp.getMessage());
+                System.exit(1);
+            }
+            System.out.printf("%s: %d games, %d moves, red %d, blue %d, "
+                              + "unfinished %d%n", name,
+                              red + blue + unfinished, fileMoves, red, blue,
+                              unfinished);
+            games += red + blue + unfinished;
+            moves += fileMoves;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d moves in %.2f s (%.0f moves/s)%n",
+                          games, moves, seconds, moves / seconds);
+    }
+
+    /** Writes game records to an OutputStream. */
+    static class Recorder implements Closeable {
+
+        /** A Recorder that writes a record file to OUT, including the
+         *  search statistics of AI moves iff STATS.  The Recorder owns
+         *  OUT. */
+        Recorder(OutputStream out, boolean stats) throws IOException {
+            _out = out;
+            _stats = stats;
+            writeByte(MAGIC >>> 24);
+            writeByte(MAGIC >>> 16);
+            writeByte(MAGIC >>> 8);
+            writeByte(MAGIC);
+            writeByte(VERSION);
+        }
+
+        /** Start the record of a game from the position on BOARD, ending
+         *  any record in progress.  The game was played with random seed
+         *  SEED, if SEEDED. */
+        void begin(Board board, boolean seeded, long seed)
+            throws IOException {
+            end();
+            int N = board.size();
+            int occupied = N * N - board.numOfColor(WHITE);
+            int flags = (seeded ? SEEDED : 0) | (occupied > 0 ? SETUP : 0);
+            writeVarint(flags);
+            writeVarint(N);
+            if (seeded) {
+                writeVarint((seed << 1) ^ (seed >> 63));
+            }
+            writeVarint(board.numMoves());
+            if (occupied > 0) {
+                writeVarint(occupied);
+                int last = -1;
+                for (int s = 0; s < N * N; s += 1) {
+                    if (board.color(s) != WHITE) {
+                        writeVarint(s - last);
+                        writeVarint(board.spots(s) * 2
+                                    + (board.color(s) == BLUE ? 1 : 0));
+                        last = s;
+                    }
+                }
+            }
+            _open = true;
+        }
+
+        /** Record a move to square #SQUARE in the current game, with the
+         *  search statistics STATS, if they are not null and I record
+         *  statistics. */
+        void move(int square, SearchStats stats) throws IOException {
+            if (!_open) {
+                return;
+            }
+            boolean withStats = _stats && stats != null;
+            writeVarint((square + 1L) * 2 + (withStats ? 1 : 0));
+            if (withStats) {
+                writeVarint(stats.depth());
+                writeVarint(stats.nodes());
+                writeVarint(stats.nanos() / 1000);
+            }
+        }
+
+        /** End the record of the current game, if any, and flush it to
+         *  my output. */
+        void end() throws IOException {
+            if (_open) {
+                writeVarint(0);
+                _open = false;
+                flush();
+            }
+        }
+
+        /** Returns true iff a game is being recorded. */
+        boolean recording() {
+            return _open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                end();
+                flush();
+            } finally {
+                _out.close();
+            }
+        }
+
+        /** Write VALUE as a varint. */
+        private void writeVarint(long value) throws IOException {
+            while ((value & ~0x7fL) != 0) {
+                writeByte((int) (value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        /** Write the low byte of B. */
+        private void writeByte(int b) throws IOException {
+            if (_count == _buffer.length) {
+                flush();
+            }
+            _buffer[_count++] = (byte) b;
+        }
+
+        /** Write out my buffer. */
+        private void flush() throws IOException {
+            _out.write(_buffer, 0, _count);
+            _out.flush();
+            _count = 0;
+        }
+
+        /** Destination of the records. */
+        private final OutputStream _out;
+        /** True iff I record the search statistics of AI moves. */
+        private final boolean _stats;
+        /** Bytes not yet written to _out. */
+        private final byte[] _buffer = new byte[BUFFER_SIZE];
+        /** Number of bytes in _buffer. */
+        private int _count;
+        /** True iff a game is being recorded. */
+        private boolean _open;
+    }
+
+    /** Reads game records from an InputStream, one move at a time or a
+     *  game at a time. */
+    static class Replayer implements Closeable {
+
+        /** A Replayer for the record file in IN, which it owns.  Throws
+         *  GameException if IN is not a record file. */
+        Replayer(InputStream in) throws IOException {
+            _in = in;
+            int magic = 0;
+            for (int i = 0; i < 4; i += 1) {
+                int b = readByte();
+                if (b < 0) {
+                    throw error("not a game record");
+                }
+                magic = (magic << 8) | b;
+            }
+            if (magic != MAGIC) {
+                throw error("not a game record");
+            }
+            int version = readByte();
+            if (version != VERSION) {
+                throw error("unknown game record version %d", version);
+            }
+        }
+
+        /** Read the header of the next game, skipping any moves of the
+         *  current one that have not been read.  Returns false if there
+         *  are no more games. */
+        boolean next() throws IOException {
+            while (_open) {
+                nextMove();
+            }
+            if (_pos == _limit && !fill()) {
+                return false;
+            }
+            int flags = (int) readVarint();
+            long size = readVarint();
+            if ((flags & ~(SEEDED | SETUP)) != 0
+                || size < 1 || size > GiantBoard.MAX_SIZE) {
+                throw error("corrupt game record");
+            }
+            _size = (int) size;
+            _seeded = (flags & SEEDED) != 0;
+            if (_seeded) {
+                long z = readVarint();
+                _seed = (z >>> 1) ^ -(z & 1);
+            } else {
+                _seed = 0;
+            }
+            _firstMove = (int) readVarint();
+            _setupCount = 0;
+            if ((flags & SETUP) != 0) {
+                long occupied = readVarint();
+                if (occupied > (long) _size * _size) {
+                    throw error("corrupt game record");
+                }
+                _setupCount = (int) occupied;
+                if (_setupSquares.length < _setupCount) {
+                    _setupSquares = new int[_setupCount];
+                    _setupContents = new int[_setupCount];
+                }
+                int square = -1;
+                for (int i = 0; i < _setupCount; i += 1) {
+                    square += (int) readVarint();
+                    _setupSquares[i] = square;
+                    _setupContents[i] = (int) readVarint();
+                }
+            }
+            _open = true;
+            return true;
+        }
+
+        /** Returns the board size of the current game. */
+        int size() {
+            return _size;
+        }
+
+        /** Returns true iff the current game records its random seed. */
+        boolean seeded() {
+            return _seeded;
+        }
+
+        /** Returns the random seed of the current game (0 if not
+         *  seeded()). */
+        long seed() {
+            return _seed;
+        }
+
+        /** Returns the number of moves made before the current game
+         *  started. */
+        int firstMove() {
+            return _firstMove;
+        }
+
+        /** Set BOARD to the starting position of the current game. */
+        void setUp(Board board) {
+            board.clear(_size);
+            for (int i = 0; i < _setupCount; i += 1) {
+                int contents = _setupContents[i];
+                board.set(_setupSquares[i], contents >>> 1,
+                          (contents & 1) == 0 ? RED : BLUE);
+            }
+            board.setMoves(_firstMove);
+        }
+
+        /** Returns the square number of the next move of the current
+         *  game, or -1 if it has no more moves. */
+        int nextMove() throws IOException {
+            if (!_open) {
+                return -1;
+            }
+            long code = readVarint();
+            if (code == 0) {
+                _open = false;
+                return -1;
+            }
+            _hasStats = (code & 1) != 0;
+            if (_hasStats) {
+                _depth = (int) readVarint();
+                _nodes = readVarint();
+                _micros = readVarint();
+            }
+            return (int) ((code >>> 1) - 1);
+        }
+
+        /** Returns true iff the last move read by nextMove has search
+         *  statistics. */
+        boolean hasStats() {
+            return _hasStats;
+        }
+
+        /** Returns the depth of the search for the last move read. */
+        int depth() {
+            return _hasStats ? _depth : 0;
+        }
+
+        /** Returns the number of nodes searched for the last move
+         *  read. */
+        long nodes() {
+            return _hasStats ? _nodes : 0;
+        }
+
+        /** Returns the time spent searching for the last move read, in
+         *  nanoseconds (to the nearest microsecond). */
+        long nanos() {
+            return _hasStats ? _micros * 1000 : 0;
+        }
+
+        /** Set BOARD to the starting position of the current game and
+         *  make the rest of its moves on it, returning how many there
+         *  were.  Throws GameException on an illegal move. */
+        int replay(Board board) throws IOException {
+            setUp(board);
+            int moves = 0;
+            for (int s = nextMove(); s >= 0; s = nextMove()) {
+                Color player = board.whoseMove();
+                if (!board.exists(s) || !board.isLegal(player, s)) {
+                    throw error("illegal move to square %d in game record",
+                                s);
+                }
+                board.addSpot(player, s);
+                board.setMoves(board.numMoves() + 1);
+                moves += 1;
+            }
+            return moves;
+        }
+
+        @Override
+        public void close() throws IOException {
+            _in.close();
+        }
+
+        /** Returns the next varint. */
+        private long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (_pos == _limit && !fill()) {
+                    throw error("truncated game record");
+                }
+                int b = _buffer[_pos++];
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw error("corrupt game record");
+        }
+
+        /** Returns the next byte, or -1 at the end of the input. */
+        private int readByte() throws IOException {
+            if (_pos == _limit && !fill()) {
+                return -1;
+            }
+            return _buffer[_pos++] & 0xff;
+        }
+
+        /** Refill my buffer.  Returns false at the end of the input. */
+        private boolean fill() throws IOException {
+            int n = _in.read(_buffer);
+            _pos = 0;
+            _limit = Math.max(n, 0);
+            return n > 0;
+        }
+
+        /** Source of the records. */
+        private final InputStream _in;
+        /** Bytes read from _in, of which those in [_pos .. _limit) are
+         *  not yet consumed. */
+        private final byte[] _buffer = new byte[BUFFER_SIZE];
+        /** Bounds of the unconsumed bytes in _buffer. */
+        private int _pos, _limit;
+        /** True iff the moves of the current game are not all read. */
+        private boolean _open;
+        /** Header of the current game. */
+        private int _size, _firstMove;
+        /** Random seed of the current game, if _seeded. */
+        private long _seed;
+        /** True iff the current game has a random seed. */
+        private boolean _seeded;
+        /** Occupied squares at the start of the current game, and their
+         *  contents (see the class comment), in
+         *  [0 .. _setupCount). */
+        private int[] _setupSquares = new int[0],
+            _setupContents = new int[0];
+        /** Number of occupied squares at the start of the current
+         *  game. */
+        private int _setupCount;
+        /** True iff the last move read has search statistics. */
+        private boolean _hasStats;
+        /** Search statistics of the last move read, if _hasStats. */
+        private int _depth;
+        /** Search statistics of the last move read, if _hasStats. */
+        private long _nodes, _micros;
+    }
+
+    /** First bytes of every record file ("JCGR"). */
+    static final int MAGIC = 0x4a434752;
+    /** Version of the record format. */
+    static final int VERSION = 1;
+    /** Flags of a game record: its header includes the random seed, and
+     *  the contents of the board at the start. */
+    static final int SEEDED = 1, SETUP = 2;
+    /** Size of the buffers of Recorders and Replayers. */
+    private static final int BUFFER_SIZE = 1 << 16;
+}
@@ -0,0 +1,145 @@
+package jumpCube;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+
+/** The shape of an N x N board: the row, column, and number of neighbors
+ *  (capacity) of each square, and the neighbors themselves, stored as
+ *  flat tables so that code walking the board need not test for edges.
+ *  The neighbors of square #S are adjacent(k) for adjacentStart(S) <= k
+ *  < adjacentEnd(S), in the order left, right, above, below.  Geometries
+ *  never change and are shared by all boards of the same size.  Boards
+ *  hold their Geometry and replace it when cleared to a new size; a
+ *  Geometry that no board holds any more may be reclaimed.
+ *  @author Brian Ha
+ */
+final class Geometry {
+
+    /** Returns the Geometry of an N x N board. */
+    static synchronized Geometry of(int N) {
+        WeakReference<Geometry> ref = CACHE.get(N);
+        Geometry result = ref == null ? null : ref.get();
+        if (result == null) {
+            CACHE.values().removeIf(r -> r.get() == null);
+            result = new Geometry(N);
+            CACHE.put(N, new WeakReference<>(result));
+        }
+        return result;
+    }
+
+    /** The Geometry of an N x N board. */
+    private Geometry(int N) {
+        _size = N;
+        _rows = new int[N * N];
+        _cols = new int[N * N];
+        _capacity = new int[N * N];
+        _offsets = new int[N * N + 1];
+        int total = 0;
+        for (int s = 0; s < N * N; s += 1) {
+            _rows[s] = s / N + 1;
+            _cols[s] = s % N + 1;
+            _capacity[s] = count(_rows[s], _cols[s]);
+            total += _capacity[s];
+        }
+        _adjacent = new int[total];
+        int k = 0;
+        for (int s = 0; s < N * N; s += 1) {
+            _offsets[s] = k;
+            if (_cols[s] > 1) {
+                _adjacent[k++] = s - 1;
+            }
+            if (_cols[s] < N) {
+                _adjacent[k++] = s + 1;
+            }
+            if (_rows[s] > 1) {
+                _adjacent[k++] = s - N;
+            }
+            if (_rows[s] < N) {
+                _adjacent[k++] = s + N;
+            }
+        }
+        _offsets[N * N] = k;
+    }
+
+    /** Returns the number of squares on a side. */
+    int size() {
+        return _size;
+    }
+
+    /** Returns the row number of square #S. */
+    int row(int s) {
+        return _rows[s];
+    }
+
+    /** Returns the column number of square #S. */
+    int col(int s) {
+        return _cols[s];
+    }
+
+    /** Returns the number of neighbors of square #S, which is also the
+     *  most spots it can hold without jumping. */
+    int neighbors(int s) {
+        return _capacity[s];
+    }
+
+    /** Returns the number of neighbors a square at row R, column C would
+     *  have, whether or not it is on the board. */
+    int neighbors(int r, int c) {
+        if (1 <= r && r <= _size && 1 <= c && c <= _size) {
+            return _capacity[(r - 1) * _size + c - 1];
+        }
+        return count(r, c);
+    }
+
+    /** Returns the index in the adjacency table of the first neighbor of
+     *  square #S. */
+    int adjacentStart(int s) {
+        return _offsets[s];
+    }
+
+    /** Returns the index in the adjacency table just past the last
+     *  neighbor of square #S. */
+    int adjacentEnd(int s) {
+        return _offsets[s + 1];
+    }
+
+    /** Returns entry K of the adjacency table. */
+    int adjacent(int k) {
+        return _adjacent[k];
+    }
+
+    /** Returns the number of neighbors of the square at row R, column C,
+     *  computed from its position. */
+    private int count(int r, int c) {
+        int n = _size;
+        if (r == 1 || r == n) {
+            if (c == 1 || c == n) {
+                return 2;
+            } else {
+                return 3;
+            }
+        } else if (c == 1 || c == n) {
+            return 3;
+        } else {
+            return 4;
+        }
+    }
+
+    /** Geometries already built, by size, as long as they are in use. */
+    private static final HashMap<Integer, WeakReference<Geometry>> CACHE =
+        new HashMap<>();
+
+    /** Number of squares on a side. */
+    private final int _size;
+    /** Row number of each square. */
+    private final int[] _rows;
+    /** Column number of each square. */
+    private final int[] _cols;
+    /** Number of neighbors of each square. */
+    private final int[] _capacity;
+    /** Start of each square's neighbors in _adjacent, plus an entry for
+     *  the end of the last square's. */
+    private final int[] _offsets;
+    /** The neighbors of all squares, in order of square number. */
+    private final int[] _adjacent;
+}
@@ -0,0 +1,583 @@
+package jumpCube;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static jumpCube.Color.*;
+import static jumpCube.GameException.error;
+
+/** A Board for very large sizes (a million squares or more).  Each square
+ *  is one byte outside the Java heap, holding its color ordinal in the
+ *  top two bits and its spots in the rest, so a 1000 x 1000 board takes
+ *  a megabyte.  Neighbors are found arithmetically rather than from a
+ *  Geometry, whose tables would be many times the size of the board.
+ *  Everything a move does (the cascade, the counts, the key, the undo
+ *  journal) is proportional to the number of squares it changes, never
+ *  to the size of the board.  The undo journal holds the previous
+ *  contents of the squares each move changed, so it grows with each
+ *  move until the undo history is cleared.
+ *  @author Brian Ha
+ */
+class GiantBoard extends Board {
+
+    /** The largest size of board a GiantBoard can represent. */
+    static final int MAX_SIZE = 46340;
+
+    /** An N x N board in initial configuration. */
+    GiantBoard(int N) {
+        clear(N);
+    }
+
+    /** A board whose initial contents are copied from BOARD0.  The undo
+     *  history is empty. */
+    GiantBoard(Board board0) {
+        copy(board0);
+    }
+
+    @Override
+    void clear(int N) {
+        if (N < 1 || N > MAX_SIZE) {
+            throw error("A GiantBoard cannot have %d squares on a side.", N);
+        }
+        clearUndo();
+        _N = N;
+        _geometry = null;
+        _squares = ByteBuffer.allocateDirect(N * N);
+        _pending = new long[(N * N + 63) >> 6];
+        _journaled = new long[(N * N + 63) >> 6];
+        _counts = new int[COLORS.length];
+        _counts[WHITE_ORDINAL] = N * N;
+        _spotTotals = new int[COLORS.length];
+        _fullCounts = new int[COLORS.length];
+        _threatCounts = new int[COLORS.length];
+        _borderCounts = new int[COLORS.length];
+        _key = 0;
+        _moves = 0;
+    }
+
+    @Override
+    void copy(Board board) {
+        board = board.backing();
+        int N = board.size();
+        if (N != _N) {
+            clear(N);
+        }
+        clearUndo();
+        if (board instanceof GiantBoard) {
+            GiantBoard other = (GiantBoard) board;
+            ByteBuffer from = other._squares.duplicate();
+            from.clear();
+            _squares.clear();
+            _squares.put(from);
+            _counts = other._counts.clone();
+            _spotTotals = other._spotTotals.clone();
+            _fullCounts = other._fullCounts.clone();
+            _threatCounts = other._threatCounts.clone();
+            _borderCounts = other._borderCounts.clone();
+            _key = other._key;
+        } else {
+            Arrays.fill(_counts, 0);
+            for (int i = 0; i < N * N; i += 1) {
+                int clr = board.color(i).ordinal();
+                _squares.put(i, (byte) pack(board.spots(i), clr));
+                _counts[clr] += 1;
+            }
+            _key = Zobrist.position(this);
+            countFeatures();
+        }
+        _moves = board.numMoves();
+    }
+
+    @Override
+    Board snapshot() {
+        return new GiantBoard(this);
+    }
+
+    @Override
+    int size() {
+        return _N;
+    }
+
+    @Override
+    int row(int n) {
+        return n / _N + 1;
+    }
+
+    @Override
+    int col(int n) {
+        return n % _N + 1;
+    }
+
+    @Override
+    int neighbors(int n) {
+        return capacity(n);
+    }
+
+    @Override
+    int neighbors(int r, int c) {
+        return 4 - (r == 1 || r == _N ? 1 : 0) - (c == 1 || c == _N ? 1 : 0);
+    }
+
+    /** Returns the Geometry of my size.  I never use it myself, and it is
+     *  much larger than I am, so it is only built if someone asks, and
+     *  dropped when I am cleared. */
+    @Override
+    Geometry geometry() {
+        if (_geometry == null) {
+            _geometry = Geometry.of(_N);
+        }
+        return _geometry;
+    }
+
+    @Override
+    int spots(int r, int c) {
+        return spots(sqNum(r, c));
+    }
+
+    @Override
+    int spots(int n) {
+        return _squares.get(n) & SPOTS_MASK;
+    }
+
+    @Override
+    Color color(int r, int c) {
+        return color(sqNum(r, c));
+    }
+
+    @Override
+    Color color(int n) {
+        return COLORS[colorOrdinal(n)];
+    }
+
+    @Override
+    int numMoves() {
+        return _moves;
+    }
+
+    @Override
+    int numOfColor(Color color) {
+        return _counts[color.ordinal()];
+    }
+
+    @Override
+    int spotsOfColor(Color color) {
+        return _spotTotals[color.ordinal()];
+    }
+
+    @Override
+    int fullSquares(Color color) {
+        return _fullCounts[color.ordinal()];
+    }
+
+    @Override
+    int threatenedSquares(Color color) {
+        return _threatCounts[color.ordinal()];
+    }
+
+    @Override
+    int borderSquares(Color color) {
+        return _borderCounts[color.ordinal()];
+    }
+
+    @Override
+    long key() {
+        return _key;
+    }
+
+    @Override
+    int legalMoves(Color player, int[] moves) {
+        int enemy = player.opposite().ordinal();
+        int count = 0;
+        for (int i = 0; i < _N * _N; i += 1) {
+            if (colorOrdinal(i) != enemy) {
+                moves[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    void addSpot(Color player, int r, int c) {
+        addSpot(player, sqNum(r, c));
+    }
+
+    @Override
+    void addSpot(Color player, int n) {
+        if (!exists(n)) {
+            return;
+        }
+        if (_numUndos == _undoMarks.length) {
+            _undoMarks = Arrays.copyOf(_undoMarks, 2 * _numUndos);
+        }
+        _undoMarks[_numUndos] = _journalSize;
+        _numUndos += 1;
+        _journaling = true;
+        put(n, spots(n) + 1, player.ordinal(), capacity(n));
+        jump(n);
+        for (int k = _undoMarks[_numUndos - 1]; k < _journalSize; k += 1) {
+            int s = (int) (_journal[k] >>> SQUARE_SHIFT);
+            _journaled[s >> 6] &= ~(1L << s);
+            account(s, (int) _journal[k] & 0xff, _squares.get(s) & 0xff);
+        }
+    }
+
+    @Override
+    int cascadeFlips() {
+        return _cascadeFlips;
+    }
+
+    @Override
+    int cascadeSteps() {
+        return _cascadeSteps;
+    }
+
+    @Override
+    void set(int r, int c, int num, Color player) {
+        if (exists(r, c)) {
+            int n = sqNum(r, c);
+            int neigh = capacity(n);
+            int old = _squares.get(n) & 0xff;
+            if (num == 0) {
+                put(n, 0, WHITE_ORDINAL, neigh);
+            } else if (num > -1 && num <= neigh) {
+                put(n, num, player.ordinal(), neigh);
+            } else {
+                throw error("The new number of dots must be less"
+                            + "than %d and greater than 0.",
+                            neigh);
+            }
+            account(n, old, _squares.get(n) & 0xff);
+        } else {
+            throw error("%d:%d is an invalid position.", r, c);
+        }
+        clearUndo();
+    }
+
+    @Override
+    void set(int n, int num, Color player) {
+        set(row(n), col(n), num, player);
+    }
+
+    @Override
+    void setMoves(int num) {
+        assert num >= 0;
+        _moves = num;
+        clearUndo();
+    }
+
+    @Override
+    void undo() {
+        assert _numUndos > 0;
+        _numUndos -= 1;
+        int mark = _undoMarks[_numUndos];
+        _journaling = false;
+        while (_journalSize > mark) {
+            _journalSize -= 1;
+            long entry = _journal[_journalSize];
+            int n = (int) (entry >>> SQUARE_SHIFT);
+            int old = (int) entry & 0xff;
+            int current = _squares.get(n) & 0xff;
+            put(n, old & SPOTS_MASK, old >>> COLOR_SHIFT, capacity(n));
+            account(n, current, old);
+        }
+    }
+
+    /** Discard all undo information, as a long series of moves that will
+     *  never be taken back should do from time to time to keep the
+     *  journal from growing. */
+    void clearUndo() {
+        _numUndos = 0;
+        _journalSize = 0;
+        _journaling = false;
+    }
+
+    /** Returns the number of neighbors of square #N. */
+    private int capacity(int n) {
+        int r = n / _N;
+        return capacity(r, n - r * _N);
+    }
+
+    /** Returns the number of neighbors of the square in row R, column C,
+     *  counting from 0. */
+    private int capacity(int r, int c) {
+        int last = _N - 1;
+        return 4 - (r == 0 || r == last ? 1 : 0)
+            - (c == 0 || c == last ? 1 : 0);
+    }
+
+    /** Returns the Color ordinal of square #N. */
+    private int colorOrdinal(int n) {
+        return (_squares.get(n) & 0xff) >>> COLOR_SHIFT;
+    }
+
+    /** Returns the byte representing SPOTS spots of the Color with ordinal
+     *  CLR. */
+    private static int pack(int spots, int clr) {
+        assert spots <= SPOTS_MASK;
+        return clr << COLOR_SHIFT | spots;
+    }
+
+    /** Set square #N, which has NEIGH neighbors, to SPOTS spots of the
+     *  Color with ordinal CLR, keeping numOfColor and threatenedSquares
+     *  up to date.  The first time a square changes during a move, its
+     *  previous contents are added to the undo journal.  The rest of the
+     *  bookkeeping is left to account. */
+    private void put(int n, int spots, int clr, int neigh) {
+        int old = _squares.get(n) & 0xff;
+        int oldClr = old >>> COLOR_SHIFT;
+        if (_journaling && (_journaled[n >> 6] & 1L << n) == 0) {
+            _journaled[n >> 6] |= 1L << n;
+            if (_journalSize == _journal.length) {
+                _journal = Arrays.copyOf(_journal, 2 * _journalSize);
+            }
+            _journal[_journalSize] = (long) n << SQUARE_SHIFT | old;
+            _journalSize += 1;
+        }
+        _counts[oldClr] -= 1;
+        _counts[clr] += 1;
+        boolean threats = oldClr != clr
+            || ((old & SPOTS_MASK) == neigh) != (spots == neigh);
+        if (threats) {
+            countThreats(n, neigh, -1);
+        }
+        _squares.put(n, (byte) pack(spots, clr));
+        if (threats) {
+            countThreats(n, neigh, 1);
+        }
+    }
+
+    /** Update the key, spotsOfColor, fullSquares, and borderSquares for
+     *  a change of square #N from the contents packed in OLD to those in
+     *  NOW.  A move changes these only once for each square it changes,
+     *  however often the square fires. */
+    private void account(int n, int old, int now) {
+        _key ^= Zobrist.square(n, old >>> COLOR_SHIFT, old & SPOTS_MASK)
+            ^ Zobrist.square(n, now >>> COLOR_SHIFT, now & SPOTS_MASK);
+        int neigh = capacity(n);
+        count(old, neigh, -1);
+        count(now, neigh, 1);
+    }
+
+    /** Add SIGN (1 or -1) times the contributions of a square with NEIGH
+     *  neighbors and contents packed in CONTENTS to spotsOfColor,
+     *  fullSquares, and borderSquares. */
+    private void count(int contents, int neigh, int sign) {
+        int clr = contents >>> COLOR_SHIFT;
+        if (clr == WHITE_ORDINAL) {
+            return;
+        }
+        int spots = contents & SPOTS_MASK;
+        _spotTotals[clr] += sign * spots;
+        _borderCounts[clr] += sign * (4 - neigh);
+        if (spots == neigh) {
+            _fullCounts[clr] += sign;
+        }
+    }
+
+    /** Add SIGN (1 or -1) times the number of threats between square #N,
+     *  which has NEIGH neighbors, and its neighbors to
+     *  threatenedSquares.  (A square's threats only
+     *  change when its color does or it becomes or stops being full, so
+     *  most changes during a cascade need not look at its neighbors.) */
+    private void countThreats(int n, int neigh, int sign) {
+        int clr = colorOrdinal(n);
+        if (clr == WHITE_ORDINAL) {
+            return;
+        }
+        int enemy = RED_ORDINAL + BLUE_ORDINAL - clr;
+        boolean full = spots(n) == neigh;
+        int c = n % _N;
+        if (c > 0) {
+            countThreats(n - 1, clr, enemy, full, sign);
+        }
+        if (c < _N - 1) {
+            countThreats(n + 1, clr, enemy, full, sign);
+        }
+        if (n >= _N) {
+            countThreats(n - _N, clr, enemy, full, sign);
+        }
+        if (n < _N * (_N - 1)) {
+            countThreats(n + _N, clr, enemy, full, sign);
+        }
+    }
+
+    /** Add SIGN times the threats between a square of color ordinal CLR,
+     *  which is FULL or not, and its neighbor #M to the threat counts.
+     *  ENEMY is the ordinal of CLR's opponent. */
+    private void countThreats(int m, int clr, int enemy, boolean full,
+                              int sign) {
+        if (colorOrdinal(m) != enemy) {
+            return;
+        }
+        if (full) {
+            _threatCounts[enemy] += sign;
+        }
+        if (spots(m) == capacity(m)) {
+            _threatCounts[clr] += sign;
+        }
+    }
+
+    /** Set the counts returned by spotsOfColor, fullSquares,
+     *  threatenedSquares, and borderSquares from the squares. */
+    private void countFeatures() {
+        Arrays.fill(_spotTotals, 0);
+        Arrays.fill(_fullCounts, 0);
+        Arrays.fill(_threatCounts, 0);
+        Arrays.fill(_borderCounts, 0);
+        for (int i = 0; i < _N * _N; i += 1) {
+            int clr = colorOrdinal(i);
+            if (clr == WHITE_ORDINAL) {
+                continue;
+            }
+            int neigh = capacity(i);
+            _spotTotals[clr] += spots(i);
+            _borderCounts[clr] += 4 - neigh;
+            if (spots(i) == neigh) {
+                _fullCounts[clr] += 1;
+                int enemy = RED_ORDINAL + BLUE_ORDINAL - clr;
+                int c = i % _N;
+                if (c > 0 && colorOrdinal(i - 1) == enemy) {
+                    _threatCounts[enemy] += 1;
+                }
+                if (c < _N - 1 && colorOrdinal(i + 1) == enemy) {
+                    _threatCounts[enemy] += 1;
+                }
+                if (i >= _N && colorOrdinal(i - _N) == enemy) {
+                    _threatCounts[enemy] += 1;
+                }
+                if (i < _N * (_N - 1) && colorOrdinal(i + _N) == enemy) {
+                    _threatCounts[enemy] += 1;
+                }
+            }
+        }
+    }
+
+    /** Do all jumping on this board, assuming that initially, S is the only
+     *  square that might be over-full.  As in MutableBoard, over-full
+     *  squares are kept on a stack (each at most once, as recorded in the
+     *  bit set _pending) and fired until none remain or one color owns
+     *  every square. */
+    private void jump(int S) {
+        _cascadeFlips = 0;
+        _cascadeSteps = 0;
+        if (spots(S) <= capacity(S)) {
+            return;
+        }
+        int top = push(S, 0);
+        while (top > 0 && getWinner() == null) {
+            top -= 1;
+            int s = _stack[top];
+            _pending[s >> 6] &= ~(1L << s);
+            int r = s / _N, c = s - r * _N;
+            int neigh = capacity(r, c);
+            int clr = colorOrdinal(s);
+            int times = (spots(s) - 1) / neigh;
+            put(s, spots(s) - times * neigh, clr, neigh);
+            _cascadeSteps += times;
+            if (c > 0) {
+                top = spill(s - 1, capacity(r, c - 1), clr, times, top);
+            }
+            if (c < _N - 1) {
+                top = spill(s + 1, capacity(r, c + 1), clr, times, top);
+            }
+            if (r > 0) {
+                top = spill(s - _N, capacity(r - 1, c), clr, times, top);
+            }
+            if (r < _N - 1) {
+                top = spill(s + _N, capacity(r + 1, c), clr, times, top);
+            }
+        }
+        while (top > 0) {
+            top -= 1;
+            _pending[_stack[top] >> 6] &= ~(1L << _stack[top]);
+        }
+    }
+
+    /** Add TIMES spots of the Color with ordinal CLR to square #N, which
+     *  has NEIGH neighbors, during a cascade, pushing it onto the pending
+     *  stack, whose current size is TOP, if it is now over-full.  Returns
+     *  the new size of the stack. */
+    private int spill(int n, int neigh, int clr, int times, int top) {
+        if (colorOrdinal(n) != clr) {
+            _cascadeFlips += 1;
+        }
+        put(n, spots(n) + times, clr, neigh);
+        if ((_pending[n >> 6] & 1L << n) == 0 && spots(n) > neigh) {
+            top = push(n, top);
+        }
+        return top;
+    }
+
+    /** Push square #N onto the pending stack, whose current size is TOP,
+     *  and return the new size. */
+    private int push(int n, int top) {
+        if (top == _stack.length) {
+            _stack = Arrays.copyOf(_stack, 2 * top);
+        }
+        _stack[top] = n;
+        _pending[n >> 6] |= 1L << n;
+        return top + 1;
+    }
+
+    /** All Colors, indexed by ordinal. */
+    private static final Color[] COLORS = Color.values();
+    /** Ordinal of WHITE. */
+    private static final int WHITE_ORDINAL = WHITE.ordinal();
+    /** Ordinal of RED. */
+    private static final int RED_ORDINAL = RED.ordinal();
+    /** Ordinal of BLUE. */
+    private static final int BLUE_ORDINAL = BLUE.ordinal();
+
+    /** Position of the color ordinal within a square's byte. */
+    private static final int COLOR_SHIFT = 6;
+    /** Mask for the spots of a square's byte. */
+    private static final int SPOTS_MASK = 0x3f;
+    /** Position of the square number within a journal entry. */
+    private static final int SQUARE_SHIFT = 8;
+
+    /** Total combined number of moves by both sides. */
+    private int _moves;
+    /** Size of board (squares along one edge). */
+    private int _N;
+    /** The Geometry of my size, once someone has asked for it. */
+    private Geometry _geometry;
+    /** The squares, indexed by square number, each packed as color
+     *  ordinal and spots. */
+    private ByteBuffer _squares;
+    /** Number of squares of each Color, indexed by ordinal. */
+    private int[] _counts;
+    /** Total spots of each Color (by ordinal). */
+    private int[] _spotTotals;
+    /** Number of full squares of each Color. */
+    private int[] _fullCounts;
+    /** Value of threatenedSquares for each Color. */
+    private int[] _threatCounts;
+    /** Value of borderSquares for each Color. */
+    private int[] _borderCounts;
+    /** Zobrist key of the current contents of the squares. */
+    private long _key;
+
+    /** Previous contents of the squares changed by each undoable move,
+     *  each packed as square number and the square's previous byte. */
+    private long[] _journal = new long[64];
+    /** Number of entries of _journal in use. */
+    private int _journalSize;
+    /** The size of _journal at the start of each undoable move. */
+    private int[] _undoMarks = new int[16];
+    /** Number of moves that can currently be undone. */
+    private int _numUndos;
+    /** True iff changes to squares are being added to _journal. */
+    private boolean _journaling;
+    /** Bit set of the squares journaled by the move in progress. */
+    private long[] _journaled;
+
+    /** Stack of over-full squares awaiting a jump. */
+    private int[] _stack = new int[64];
+    /** Bit set of the squares on _stack: square #N is bit N % 64 of word
+     *  N / 64. */
+    private long[] _pending;
+    /** Number of squares that changed color in the last cascade. */
+    private int _cascadeFlips;
+    /** Number of overflows in the last cascade. */
+    private int _cascadeSteps;
+}
@@ -7,6 +7,7 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Writer;
 import java.io.IOException;
+import java.util.Arrays;
 
 /** The jumpCube game.
  * @author Brian Ha
@@ -16,9 +17,14 @@ public class Main {
     static final String USAGE = "jumpCube/Usage.txt";
 
     /** Play jumpCube.  ARGS0 may contain the String
-     *  '--display' to activate the GUI option. Prints
+     *  '--display' to activate the GUI option, or start with '--batch'
+     *  to run scripts instead (see Batch). Prints
      *  a usage message if the arguments are incorrect. */
     public static void main(String[] args0) {
+        if (args0.length >= 1 && args0[0].equals("--batch")) {
+            batch(Arrays.copyOfRange(args0, 1, args0.length));
+            return;
+        }
         if (args0.length > 1 || (args0.length == 1
                                  && !args0[0].equals("--display"))) {
             usage();
@@ -60,6 +66,35 @@ public class Main {
         }
     }
 
+    /** Run the scripts given by ARGS in batch mode and exit. */
+    private static void batch(String[] args) {
+        Batch batch;
+        try {
+            batch = new Batch(args);
+        } catch (GameException excp) {
+            System.err.println("Error: " + excp.getMessage());
+            System.exit(1);
+            return;
+        }
+        System.exit(batch.run(System.out));
+    }
+
+    /** Returns the integer denoted by TEXT, which must be at least MIN.
+     *  Throws GameException otherwise. */
+    static int number(String text, int min) {
+        int value;
+        try {
+            value = Integer.parseInt(text);
+        } catch (NumberFormatException excp) {
+            throw GameException.error("not a number: %s", text);
+        }
+        if (value < min) {
+            throw GameException.error("%d is too small (minimum %d)",
+                                      value, min);
+        }
+        return value;
+    }
+
     /** Print usage message. */
     private static void usage() {
         printHelpResource(USAGE, new PrintWriter(System.err));
@@ -0,0 +1,434 @@
+package jumpCube;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** An automated Player that chooses moves by Monte Carlo tree search.
+ *  It repeatedly walks down a tree of positions, plays a few quick,
+ *  mostly random moves from the position reached (a playout), and
+ *  credits the estimated chance of winning from there to the positions
+ *  on the way.  Moves are chosen by an upper confidence bound rule in
+ *  which each move's prior probability, computed from the static
+ *  evaluation of the position it leads to, stands in for the moves not
+ *  yet explored.  It then makes the move it tried most often.  Its cost
+ *  does not depend on reaching a given depth, so it degrades gracefully
+ *  on large boards, where AI's alpha-beta search runs out of time after
+ *  a ply or two.
+ *
+ *  The tree is kept in fixed-size arrays, so its memory is bounded; once
+ *  they are full, the search goes on without adding positions.  Several
+ *  threads may search the same tree.  Each counts a visit to a position
+ *  as soon as it enters it (a "virtual loss") and adds the result later,
+ *  which steers the other threads toward other moves meanwhile.
+ *  @author Brian Ha
+ */
+class MonteCarloPlayer extends Player {
+
+    /** A new player of GAME initially playing COLOR that chooses moves
+     *  automatically by Monte Carlo tree search. */
+    MonteCarloPlayer(Game game, Color color) {
+        super(game, color);
+        _timeBudget = Defaults.TIME_BUDGET;
+        _threads = Defaults.THREADS;
+        _nodeLimit = Defaults.MCTS_NODES;
+        _evaluator = new Evaluator();
+    }
+
+    /** Allow myself MILLIS milliseconds to choose each move. */
+    void setTimeBudget(long millis) {
+        _timeBudget = millis;
+    }
+
+    /** Stop each search after PLAYOUTS playouts, or never if PLAYOUTS is
+     *  0, whatever the time budget. */
+    void setPlayouts(int playouts) {
+        assert playouts >= 0;
+        _playouts = playouts;
+    }
+
+    /** Search using THREADS threads (THREADS >= 1). */
+    void setThreads(int threads) {
+        assert threads >= 1;
+        if (threads != _threads && _pool != null) {
+            _pool.shutdown();
+            _pool = null;
+        }
+        _threads = threads;
+    }
+
+    /** Keep at most NODES positions in my search tree (NODES >= 1). */
+    void setNodeLimit(int nodes) {
+        assert nodes >= 1;
+        _nodeLimit = nodes;
+    }
+
+    /** Value positions with EVALUATOR. */
+    void setEvaluator(Evaluator evaluator) {
+        _evaluator = evaluator;
+    }
+
+    /** Start the random number generators of my searches from SEED. */
+    void setSeed(long seed) {
+        _seed = seed;
+    }
+
+    /** Returns the number of playouts in my last search. */
+    int lastPlayouts() {
+        return _playoutCount.get();
+    }
+
+    /** Returns the number of positions in the tree of my last search. */
+    int lastTreeSize() {
+        return Math.min(_size.get(), _nodeLimit);
+    }
+
+    @Override
+    void makeMove() {
+        Game game = getGame();
+        Board board = game.getMBoard();
+        int move = findMove(board, board.whoseMove());
+        game.makeMove(board.row(move), board.col(move));
+    }
+
+    /** Return the square number of the move for C on BOARD that was tried
+     *  most often in a search lasting until the time budget or the
+     *  number of playouts is used up.  Leaves BOARD unchanged. */
+    int findMove(Board board, Color c) {
+        _deadline = System.nanoTime() + _timeBudget * 1000000L;
+        _playoutCount.set(0);
+        allocate();
+        _size.set(1);
+        _moves[ROOT] = -1;
+        _visits.set(ROOT, 0);
+        _wins.set(ROOT, 0);
+        _firstChild.set(ROOT, UNEXPANDED);
+        if (!expand(ROOT, board, c)) {
+            throw new IllegalStateException("no room for the root moves");
+        }
+        if (_childCount[ROOT] > 1) {
+            search(board, c);
+        }
+        int best = _firstChild.get(ROOT);
+        int end = best + _childCount[ROOT];
+        for (int k = best + 1; k < end; k += 1) {
+            if (_visits.get(k) > _visits.get(best)) {
+                best = k;
+            }
+        }
+        return _moves[best];
+    }
+
+    /** Run playouts from BOARD, with C to move, on _threads threads until
+     *  the time or playout budget is used up. */
+    private void search(Board board, Color c) {
+        _seed += 1;
+        if (_threads == 1) {
+            new Searcher(board, c, _seed).run();
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int t = 0; t < _threads; t += 1) {
+            Searcher searcher = new Searcher(board, c, _seed * _threads + t);
+            tasks.add(() -> {
+                    searcher.run();
+                    return null;
+                });
+        }
+        if (_pool == null) {
+            _pool = new ForkJoinPool(_threads);
+        }
+        _pool.invokeAll(tasks);
+    }
+
+    /** Make sure the tree arrays have room for _nodeLimit nodes. */
+    private void allocate() {
+        if (_moves == null || _moves.length != _nodeLimit) {
+            _moves = new int[_nodeLimit];
+            _childCount = new int[_nodeLimit];
+            _priors = new float[_nodeLimit];
+            _visits = new AtomicIntegerArray(_nodeLimit);
+            _wins = new AtomicLongArray(_nodeLimit);
+            _firstChild = new AtomicIntegerArray(_nodeLimit);
+        }
+    }
+
+    /** Add the children of NODE, whose position is BOARD with C to move,
+     *  to the tree, with prior probabilities that favor the moves that
+     *  leave C's position best according to _evaluator.  Returns false if
+     *  there is no room for them.  Only one thread may expand a given
+     *  node. */
+    private boolean expand(int node, Board board, Color c) {
+        int size = board.size();
+        int[] legal = new int[size * size];
+        int count = board.legalMoves(c, legal);
+        int start = _size.getAndAdd(count);
+        if (start > _nodeLimit - count) {
+            _firstChild.set(node, NO_ROOM);
+            return false;
+        }
+        int best = Integer.MIN_VALUE;
+        for (int k = 0; k < count; k += 1) {
+            board.addSpot(c, legal[k]);
+            int value;
+            if (board.getWinner() != null) {
+                value = WON;
+            } else {
+                value = _evaluator.evaluate(board, c);
+            }
+            board.undo();
+            _priors[start + k] = value;
+            best = Math.max(best, value);
+        }
+        double total = 0;
+        for (int k = 0; k < count; k += 1) {
+            float weight = (float) Math.exp((_priors[start + k] - best)
+                                             / TEMPERATURE);
+            _priors[start + k] = weight;
+            total += weight;
+        }
+        for (int k = 0; k < count; k += 1) {
+            _moves[start + k] = legal[k];
+            _priors[start + k] /= total;
+            _visits.set(start + k, 0);
+            _wins.set(start + k, 0);
+            _firstChild.set(start + k, UNEXPANDED);
+        }
+        _childCount[node] = count;
+        _firstChild.set(node, start);
+        return true;
+    }
+
+    /** The state of one thread's search. */
+    private class Searcher implements Runnable {
+
+        /** A Searcher that searches from BOARD, with C to move, making
+         *  random choices from SEED. */
+        Searcher(Board board, Color c, long seed) {
+            if (board.size() <= BitBoard.MAX_SIZE) {
+                _board = new BitBoard(board);
+            } else {
+                _board = new MutableBoard(board);
+            }
+            _player = c;
+            _random = new Random(seed);
+            int squares = board.size() * board.size();
+            _legal = new int[squares];
+            _playoutLimit = PLAYOUT_LENGTH;
+        }
+
+        @Override
+        public void run() {
+            while (System.nanoTime() < _deadline) {
+                int n = _playoutCount.incrementAndGet();
+                if (_playouts > 0 && n > _playouts) {
+                    _playoutCount.decrementAndGet();
+                    break;
+                }
+                iterate();
+            }
+        }
+
+        /** Do one round of search: select a path from the root, expand
+         *  its end, play out a game from there, and record the result
+         *  along the path. */
+        private void iterate() {
+            Board board = _board;
+            Color player = _player;
+            int node = ROOT;
+            int depth = 0;
+            int made = 0;
+            _path[0] = ROOT;
+            _visits.incrementAndGet(ROOT);
+            while (board.getWinner() == null) {
+                int first = _firstChild.get(node);
+                if (first < 0) {
+                    if (first != UNEXPANDED
+                        || _visits.get(node) <= EXPANSION_VISITS
+                        || !_firstChild.compareAndSet(node, UNEXPANDED,
+                                                      EXPANDING)
+                        || !expand(node, board, player)) {
+                        break;
+                    }
+                    first = _firstChild.get(node);
+                }
+                node = select(first, _childCount[node], _visits.get(node));
+                _visits.incrementAndGet(node);
+                board.addSpot(player, _moves[node]);
+                made += 1;
+                player = player.opposite();
+                depth += 1;
+                if (depth == _path.length) {
+                    _path = Arrays.copyOf(_path, 2 * depth);
+                }
+                _path[depth] = node;
+            }
+            made += playout(player);
+            int redValue = value(board);
+            Color mover = _player.opposite();
+            for (int d = 0; d <= depth; d += 1) {
+                if (mover == Color.RED) {
+                    _wins.addAndGet(_path[d], redValue);
+                } else {
+                    _wins.addAndGet(_path[d], WIN - redValue);
+                }
+                mover = mover.opposite();
+            }
+            for (; made > 0; made -= 1) {
+                board.undo();
+            }
+        }
+
+        /** Returns the child among the COUNT children starting at FIRST,
+         *  whose parent has been visited PARENTVISITS times, with the
+         *  highest sum of its average value and an exploration bonus that
+         *  grows with its prior and shrinks with its visits. */
+        private int select(int first, int count, int parentVisits) {
+            double scale = EXPLORATION * Math.sqrt(parentVisits);
+            int best = first;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int k = first; k < first + count; k += 1) {
+                int visits = _visits.get(k);
+                double value;
+                if (visits == 0) {
+                    value = FIRST_VISIT_VALUE;
+                } else {
+                    value = (double) _wins.get(k) / ((double) WIN * visits);
+                }
+                value += scale * _priors[k] / (1 + visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = k;
+                }
+            }
+            return best;
+        }
+
+        /** Make up to _playoutLimit moves on _board, starting with PLAYER,
+         *  choosing them at random but often preferring a move onto one of
+         *  the mover's full squares.  Returns the number of moves made. */
+        private int playout(Color player) {
+            Board board = _board;
+            int made = 0;
+            while (made < _playoutLimit && board.getWinner() == null) {
+                int count = board.legalMoves(player, _legal);
+                int move = _legal[_random.nextInt(count)];
+                for (int k = 0; k < GREEDY_TRIES
+                         && board.spots(move) < board.neighbors(move);
+                     k += 1) {
+                    move = _legal[_random.nextInt(count)];
+                }
+                board.addSpot(player, move);
+                made += 1;
+                player = player.opposite();
+            }
+            return made;
+        }
+
+        /** Returns the estimated chance that red wins from BOARD, times
+         *  WIN: exact if the game is over, and otherwise a logistic
+         *  function of the static evaluation. */
+        private int value(Board board) {
+            Color winner = board.getWinner();
+            if (winner == Color.RED) {
+                return WIN;
+            } else if (winner == Color.BLUE) {
+                return 0;
+            }
+            double x = _evaluator.evaluate(board, Color.RED) / VALUE_SCALE;
+            return (int) (WIN / (1 + Math.exp(-x)));
+        }
+
+        /** My copy of the position being searched. */
+        private final Board _board;
+        /** The player to move at the root. */
+        private final Color _player;
+        /** Source of playout moves. */
+        private final Random _random;
+        /** Buffer for legal moves. */
+        private final int[] _legal;
+        /** Maximum length of a playout. */
+        private final int _playoutLimit;
+        /** The nodes on the current path from the root. */
+        private int[] _path = new int[64];
+    }
+
+    /** Index of the root node. */
+    private static final int ROOT = 0;
+    /** Value of _firstChild for a node whose children are not yet in the
+     *  tree. */
+    private static final int UNEXPANDED = -1;
+    /** Value of _firstChild for a node whose children are being added. */
+    private static final int EXPANDING = -2;
+    /** Value of _firstChild for a node for whose children there was no
+     *  room. */
+    private static final int NO_ROOM = -3;
+    /** The value of a won position for the winner (0 for the loser).
+     *  Values in between estimate the chance of winning. */
+    private static final int WIN = 1 << 12;
+    /** Weight of the exploration term of the selection rule. */
+    private static final double EXPLORATION = 1.5;
+    /** Value assumed for a move that has not yet been tried, as a
+     *  fraction of WIN. */
+    private static final double FIRST_VISIT_VALUE = 0.5;
+    /** Number of visits to a node before its children are added. */
+    private static final int EXPANSION_VISITS = 1;
+    /** Evaluation difference between two moves that makes the prior
+     *  probability of the better one e times that of the worse. */
+    private static final double TEMPERATURE = 10;
+    /** Evaluation at which a position counts as won about 73% of the
+     *  time (the value of the logistic function at 1). */
+    private static final double VALUE_SCALE = 30;
+    /** Number of moves in a playout. */
+    private static final int PLAYOUT_LENGTH = 4;
+    /** Number of extra random moves a playout tries in search of one onto
+     *  a full square of the mover's. */
+    private static final int GREEDY_TRIES = 2;
+    /** The score used in computing priors for a move that wins. */
+    private static final int WON = 1 << 20;
+
+    /** Static evaluation used for priors and playout results. */
+    private Evaluator _evaluator;
+    /** Time allowed per move (milliseconds). */
+    private long _timeBudget;
+    /** Maximum number of playouts per move, or 0 for no limit. */
+    private int _playouts;
+    /** Number of threads to search with. */
+    private int _threads;
+    /** Maximum number of nodes in the tree. */
+    private int _nodeLimit;
+    /** Seed of the random number generators of the next search. */
+    private long _seed;
+    /** Threads for searching with, created when first needed. */
+    private ForkJoinPool _pool;
+
+    /** Time (System.nanoTime) at which the current search must stop. */
+    private volatile long _deadline;
+    /** Number of playouts started in the current search. */
+    private final AtomicInteger _playoutCount = new AtomicInteger();
+    /** Number of nodes allocated in the tree (may exceed _nodeLimit
+     *  once the tree is full). */
+    private final AtomicInteger _size = new AtomicInteger();
+
+    /** Move leading to each node. */
+    private int[] _moves;
+    /** Number of children of each expanded node. */
+    private int[] _childCount;
+    /** Number of visits to each node, including those still in
+     *  progress. */
+    private AtomicIntegerArray _visits;
+    /** Total values of the playouts through each node for the player who
+     *  moved into it (WIN per win). */
+    private AtomicLongArray _wins;
+    /** Prior probability of the move leading to each node. */
+    private float[] _priors;
+    /** Index of the first child of each node, or UNEXPANDED, EXPANDING,
+     *  or NO_ROOM. */
+    private AtomicIntegerArray _firstChild;
+}
@@ -2,10 +2,13 @@ package jumpCube;
 
 
 import static jumpCube.Color.*;
-import java.util.ArrayList;
+import java.util.Arrays;
 import static jumpCube.GameException.error;
 
-/** A jumpCube board state.
+/** A jumpCube board state.  Each square is stored as a pair of bytes
+ *  (its number of spots and the ordinal of its Color), indexed by square
+ *  number.  Undo information is a journal holding the previous contents
+ *  of just those squares that each move changed.
  *  @author Brian Ha
  */
 class MutableBoard extends Board {
@@ -13,44 +16,85 @@ class MutableBoard extends Board {
     MutableBoard(int N) {
         _moves = 0;
         _N = N;
-        _table = new String[_N][_N];
-        for (int i = 0; i < _N; i++) {
-            for (int j = 0; j < _N; j++) {
-                _table[i][j] = "white 0";
-            }
-        }
-        history = new ArrayList<String[][]>();
+        _geometry = Geometry.of(N);
+        _spots = new byte[_N * _N];
+        _colors = new byte[_N * _N];
+        _counts = new int[COLORS.length];
+        _counts[WHITE.ordinal()] = _N * _N;
+        indexColors();
+        countFeatures();
+        _stamps = new int[_N * _N];
+        _pending = new int[_N * _N];
+        _isPending = new boolean[_N * _N];
     }
 
     MutableBoard(Board board0) {
-        _moves = board0.numMoves();
-        _N = board0.size();
-        _table = new String[_N][_N];
-        for (int i = 1; i <= _N; i++) {
-            for (int j = 1; j <= _N; j++) {
-                _table[i - 1][j - 1] = board0.color(i, j).toString()
-                    + " " + board0.spots(i, j);
-            }
-        }
-        history = new ArrayList<String[][]>();
+        copy(board0);
     }
 
     @Override
     void clear(int N) {
-        history.clear();
+        clearUndo();
         _N = N;
-        _table = new String[_N][_N];
-        for (int i = 0; i < _N; i++) {
-            for (int j = 0; j < _N; j++) {
-                _table[i][j] = "white 0";
-            }
-        }
+        _geometry = Geometry.of(N);
+        _spots = new byte[_N * _N];
+        _colors = new byte[_N * _N];
+        _counts = new int[COLORS.length];
+        _counts[WHITE.ordinal()] = _N * _N;
+        indexColors();
+        countFeatures();
+        _stamps = new int[_N * _N];
+        _pending = new int[_N * _N];
+        _isPending = new boolean[_N * _N];
+        _key = 0;
         _moves = 0;
     }
 
     @Override
     void copy(Board board) {
-        _table = ((MutableBoard) board).getTable();
+        board = board.backing();
+        if (!(board instanceof MutableBoard)) {
+            clear(board.size());
+            for (int i = 0; i < _N * _N; i++) {
+                _spots[i] = (byte) board.spots(i);
+                _colors[i] = (byte) board.color(i).ordinal();
+                _counts[WHITE_ORDINAL] -= 1;
+                _counts[_colors[i]] += 1;
+            }
+            _key = Zobrist.position(this);
+            indexColors();
+            countFeatures();
+            _moves = board.numMoves();
+            return;
+        }
+        MutableBoard other = (MutableBoard) board;
+        clearUndo();
+        if (_N != other._N) {
+            _stamps = new int[other._N * other._N];
+            _pending = new int[other._N * other._N];
+            _isPending = new boolean[other._N * other._N];
+        }
+        _N = other._N;
+        _geometry = other._geometry;
+        _spots = other._spots.clone();
+        _colors = other._colors.clone();
+        _counts = other._counts.clone();
+        _key = other._key;
+        _spotTotals = other._spotTotals.clone();
+        _fullCounts = other._fullCounts.clone();
+        _threatCounts = other._threatCounts.clone();
+        _borderCounts = other._borderCounts.clone();
+        _colorBits = new long[COLORS.length][];
+        for (int i = 0; i < COLORS.length; i += 1) {
+            _colorBits[i] = other._colorBits[i].clone();
+        }
+        _lastWordMask = other._lastWordMask;
+        _moves = other._moves;
+    }
+
+    @Override
+    Board snapshot() {
+        return new MutableBoard(this);
     }
 
     @Override
@@ -60,35 +104,27 @@ class MutableBoard extends Board {
 
     @Override
     int spots(int r, int c) {
-        String[] contents = _table[r - 1][c - 1].split(" ");
-        return Integer.parseInt(contents[1]);
+        return _spots[sqNum(r, c)];
+    }
+
+    @Override
+    Geometry geometry() {
+        return _geometry;
     }
 
     @Override
     int spots(int n) {
-        int r = row(n);
-        int c = col(n);
-        return spots(r, c);
+        return _spots[n];
     }
 
     @Override
     Color color(int r, int c) {
-        String[] contents = _table[r - 1][c - 1].split(" ");
-        String clr = contents[0];
-        if (clr.equals("white")) {
-            return WHITE;
-        } else if (clr.equals("red")) {
-            return RED;
-        } else {
-            return BLUE;
-        }
+        return COLORS[_colors[sqNum(r, c)]];
     }
 
     @Override
     Color color(int n) {
-        int r = row(n);
-        int c = col(n);
-        return color(r, c);
+        return COLORS[_colors[n]];
     }
 
     @Override
@@ -98,60 +134,95 @@ class MutableBoard extends Board {
 
     @Override
     int numOfColor(Color color) {
-        int n = 0;
-        for (int i = 1; i <= _N; i++) {
-            for (int j = 1; j <= _N; j++) {
-                if (color == color(i, j)) {
-                    n++;
-                }
+        return _counts[color.ordinal()];
+    }
+
+    @Override
+    long key() {
+        return _key;
+    }
+
+    @Override
+    int spotsOfColor(Color color) {
+        return _spotTotals[color.ordinal()];
+    }
+
+    @Override
+    int fullSquares(Color color) {
+        return _fullCounts[color.ordinal()];
+    }
+
+    @Override
+    int threatenedSquares(Color color) {
+        return _threatCounts[color.ordinal()];
+    }
+
+    @Override
+    int borderSquares(Color color) {
+        return _borderCounts[color.ordinal()];
+    }
+
+    @Override
+    int legalMoves(Color player, int[] moves) {
+        long[] enemy = _colorBits[player.opposite().ordinal()];
+        int count = 0;
+        int last = enemy.length - 1;
+        for (int w = 0; w <= last; w += 1) {
+            long bits = ~enemy[w];
+            if (w == last) {
+                bits &= _lastWordMask;
+            }
+            while (bits != 0) {
+                moves[count++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
             }
         }
-        return n;
+        return count;
     }
 
     @Override
     void addSpot(Color player, int r, int c) {
-        String[][] temp = new String[_N][_N];
-        for (int i = 0; i < _N; i++) {
-            for (int j = 0; j < _N; j++) {
-                temp[i][j] =  new String(_table[i][j]);
-            }
-        }
-        history.add(temp);
-        _table[r - 1][c - 1] = player.toString() + " " + (spots(r, c) + 1);
-        jump(sqNum(r, c));
+        addSpot(player, sqNum(r, c));
     }
 
     @Override
     void addSpot(Color player, int n) {
-        int r = row(n);
-        int c = col(n);
-        addSpot(player, r, c);
+        if (_numUndos == _undoMarks.length) {
+            _undoMarks = Arrays.copyOf(_undoMarks, 2 * _numUndos);
+        }
+        _undoMarks[_numUndos] = _journalSize;
+        _numUndos += 1;
+        _journaling = true;
+        _stamp += 1;
+        if (_stamp == Integer.MAX_VALUE) {
+            Arrays.fill(_stamps, 0);
+            _stamp = 1;
+        }
+        addOne(player, n);
     }
 
     /** addSpot without updating history at square at R, C of color PLAYER. */
     void addOne(Color player, int r, int c) {
-        _table[r - 1][c - 1] = player.toString() + " " + (spots(r, c) + 1);
-        jump(sqNum(r, c));
+        addOne(player, sqNum(r, c));
     }
 
     /** addSpot without updating history at square at N of color PLAYER. */
     void addOne(Color player, int n) {
         if (exists(n)) {
-            int r = row(n);
-            int c = col(n);
-            addOne(player, r, c);
+            put(n, _spots[n] + 1, player.ordinal());
+            jump(n);
         }
     }
 
     @Override
     void set(int r, int c, int num, Color player) {
-        int neigh = neighbors(r, c);
         if (exists(r, c)) {
+            int n = sqNum(r, c);
+            int neigh = _geometry.neighbors(n);
             if (num == 0) {
-                _table[r - 1][c - 1] = "white 0";
+                put(n, 0, WHITE.ordinal());
             } else if (num > -1 && num <= neigh) {
-                _table[r - 1][c - 1] = player.toString() + " " + num;
+                put(n, num, player.ordinal());
             } else {
                 throw error("The new number of dots must be less"
                             + "than %d and greater than 0.",
@@ -160,6 +231,7 @@ class MutableBoard extends Board {
         } else {
             throw error("%d:%d is an invalid position.", r, c);
         }
+        clearUndo();
     }
 
     @Override
@@ -173,52 +245,242 @@ class MutableBoard extends Board {
     void setMoves(int num) {
         assert num >= 0;
         _moves = num;
+        clearUndo();
     }
 
     @Override
     void undo() {
-        String[][] temp = history.remove(history.size() - 1);
-        _table = temp;
+        assert _numUndos > 0;
+        _numUndos -= 1;
+        int mark = _undoMarks[_numUndos];
+        _journaling = false;
+        while (_journalSize > mark) {
+            _journalSize -= 1;
+            int entry = _journal[_journalSize];
+            put(entry >>> SQUARE_SHIFT, (entry >>> 2) & SPOTS_MASK,
+                entry & COLOR_MASK);
+        }
     }
 
-    /** Returns representation of the board. */
-    String[][] getTable() {
-        return _table;
+    /** Discard all undo information.  Since setMoves and set clear the
+     *  history, a board whose moves are never taken back (such as the
+     *  one recording a game) only keeps the journal of its latest move. */
+    private void clearUndo() {
+        _numUndos = 0;
+        _journalSize = 0;
+        _journaling = false;
     }
 
-    /** Do all jumping on this board, assuming that initially, S is the only
-     *  square that might be over-full. */
-    private void jump(int S) {
-        int neigh = neighbors(S);
-        if (exists(S) && spots(S) > neigh && getWinner() == null) {
-            Color p = color(S);
-            int n = size();
-            set(S, spots(S) - neigh, p);
-            if (col(S) != 1) {
-                addOne(p, S - 1);
+    /** Set square #N to SPOTS spots of the Color with ordinal CLR,
+     *  keeping the per-color counts, the bit sets, and the key up to
+     *  date.  The first time a square changes during a move, its
+     *  previous contents are added to the undo journal. */
+    private void put(int n, int spots, int clr) {
+        if (_journaling && _stamps[n] != _stamp) {
+            _stamps[n] = _stamp;
+            if (_journalSize == _journal.length) {
+                _journal = Arrays.copyOf(_journal, 2 * _journalSize);
             }
-            if (col(S) != size()) {
-                addOne(p, S + 1);
+            _journal[_journalSize] =
+                (n << SQUARE_SHIFT) | (_spots[n] << 2) | _colors[n];
+            _journalSize += 1;
+        }
+        if (_colors[n] != clr) {
+            _colorBits[_colors[n]][n >> 6] &= ~(1L << n);
+            _colorBits[clr][n >> 6] |= 1L << n;
+        }
+        _counts[_colors[n]] -= 1;
+        _counts[clr] += 1;
+        _key ^= Zobrist.square(n, _colors[n], _spots[n])
+            ^ Zobrist.square(n, clr, spots);
+        countFeatures(n, -1);
+        _spots[n] = (byte) spots;
+        _colors[n] = (byte) clr;
+        countFeatures(n, 1);
+    }
+
+    /** Add SIGN (1 or -1) times the contributions of square #N to
+     *  spotsOfColor, fullSquares, threatenedSquares, and borderSquares. */
+    private void countFeatures(int n, int sign) {
+        int clr = _colors[n];
+        if (clr == WHITE_ORDINAL) {
+            return;
+        }
+        int enemy = RED_ORDINAL + BLUE_ORDINAL - clr;
+        Geometry geometry = _geometry;
+        int neigh = geometry.neighbors(n);
+        boolean full = _spots[n] == neigh;
+        _spotTotals[clr] += sign * _spots[n];
+        _borderCounts[clr] += sign * (4 - neigh);
+        if (full) {
+            _fullCounts[clr] += sign;
+        }
+        int end = geometry.adjacentEnd(n);
+        for (int k = geometry.adjacentStart(n); k < end; k += 1) {
+            int m = geometry.adjacent(k);
+            if (_colors[m] != enemy) {
+                continue;
             }
-            addOne(p, S - n);
-            addOne(p, S + n);
-            if (col(S) != 1) {
-                jump(S - 1);
+            if (full) {
+                _threatCounts[enemy] += sign;
             }
-            if (col(S) != size()) {
-                jump(S + 1);
+            if (_spots[m] == geometry.neighbors(m)) {
+                _threatCounts[clr] += sign;
+            }
+        }
+    }
+
+    /** Set the counts returned by spotsOfColor, fullSquares,
+     *  threatenedSquares, and borderSquares from the squares. */
+    private void countFeatures() {
+        _spotTotals = new int[COLORS.length];
+        _fullCounts = new int[COLORS.length];
+        _threatCounts = new int[COLORS.length];
+        _borderCounts = new int[COLORS.length];
+        for (Color color : COLORS) {
+            int i = color.ordinal();
+            _spotTotals[i] = super.spotsOfColor(color);
+            _fullCounts[i] = super.fullSquares(color);
+            _threatCounts[i] = super.threatenedSquares(color);
+            _borderCounts[i] = super.borderSquares(color);
+        }
+    }
+
+    /** Set _colorBits from _colors. */
+    private void indexColors() {
+        int words = (_N * _N + 63) >> 6;
+        _colorBits = new long[COLORS.length][words];
+        for (int i = 0; i < _N * _N; i += 1) {
+            _colorBits[_colors[i]][i >> 6] |= 1L << i;
+        }
+        int extra = _N * _N & 63;
+        _lastWordMask = extra == 0 ? -1L : (1L << extra) - 1;
+    }
+
+    /** Do all jumping on this board, assuming that initially, S is the only
+     *  square that might be over-full.  Over-full squares are kept on a
+     *  stack (each at most once) and fired until none remain or one color
+     *  owns every square. */
+    private void jump(int S) {
+        _cascadeFlips = 0;
+        _cascadeSteps = 0;
+        Geometry geometry = _geometry;
+        if (_spots[S] <= geometry.neighbors(S)) {
+            return;
+        }
+        int top = 0;
+        _pending[top++] = S;
+        _isPending[S] = true;
+        while (top > 0 && getWinner() == null) {
+            int s = _pending[--top];
+            _isPending[s] = false;
+            int neigh = geometry.neighbors(s);
+            int clr = _colors[s];
+            int times = (_spots[s] - 1) / neigh;
+            put(s, _spots[s] - times * neigh, clr);
+            _cascadeSteps += times;
+            int end = geometry.adjacentEnd(s);
+            for (int k = geometry.adjacentStart(s); k < end; k += 1) {
+                top = spill(geometry.adjacent(k), clr, times, top);
             }
-            jump(S - n);
-            jump(S + n);
         }
+        while (top > 0) {
+            _isPending[_pending[--top]] = false;
+        }
+    }
+
+    /** Add TIMES spots of the Color with ordinal CLR to square #N during a
+     *  cascade, pushing it onto the pending stack, whose current size is
+     *  TOP, if it is now over-full.  Returns the new size of the stack. */
+    private int spill(int n, int clr, int times, int top) {
+        if (_colors[n] != clr) {
+            _cascadeFlips += 1;
+        }
+        put(n, _spots[n] + times, clr);
+        if (!_isPending[n] && _spots[n] > _geometry.neighbors(n)) {
+            _isPending[n] = true;
+            _pending[top++] = n;
+        }
+        return top;
     }
 
+    @Override
+    int cascadeFlips() {
+        return _cascadeFlips;
+    }
+
+    @Override
+    int cascadeSteps() {
+        return _cascadeSteps;
+    }
+
+    /** All Colors, indexed by ordinal. */
+    private static final Color[] COLORS = Color.values();
+    /** Ordinal of WHITE. */
+    private static final int WHITE_ORDINAL = WHITE.ordinal();
+    /** Ordinal of RED. */
+    private static final int RED_ORDINAL = RED.ordinal();
+    /** Ordinal of BLUE. */
+    private static final int BLUE_ORDINAL = BLUE.ordinal();
+
+    /** Position of the square number within a journal entry. */
+    private static final int SQUARE_SHIFT = 8;
+    /** Mask for the spots of a journal entry (after shifting by 2). */
+    private static final int SPOTS_MASK = 0x3f;
+    /** Mask for the color ordinal of a journal entry. */
+    private static final int COLOR_MASK = 0x3;
+
     /** Total combined number of moves by both sides. */
     protected int _moves;
     /** Convenience variable: size of board (squares along one edge). */
     private int _N;
-    /** Collection of the past states of the board. */
-    private ArrayList<String[][]> history;
-    /** 2-D array representation of the board squares. */
-    private String[][] _table;
+    /** The shape of boards of size _N. */
+    private Geometry _geometry;
+    /** Number of spots on each square, indexed by square number. */
+    private byte[] _spots;
+    /** Ordinal of the Color of each square, indexed by square number. */
+    private byte[] _colors;
+    /** Number of squares of each Color, indexed by ordinal. */
+    private int[] _counts;
+    /** For each Color (by ordinal), a bit set of the squares of that
+     *  Color: square #N is bit N % 64 of word N / 64. */
+    private long[][] _colorBits;
+    /** Mask of the bits of the last word of a bit set that correspond
+     *  to squares. */
+    private long _lastWordMask;
+    /** Total spots of each Color (by ordinal). */
+    private int[] _spotTotals;
+    /** Number of full squares of each Color. */
+    private int[] _fullCounts;
+    /** Value of threatenedSquares for each Color. */
+    private int[] _threatCounts;
+    /** Value of borderSquares for each Color. */
+    private int[] _borderCounts;
+    /** Zobrist key of the current contents of the squares. */
+    private long _key;
+
+    /** Previous contents of the squares changed by each undoable move,
+     *  each packed as square number, spots, and color ordinal. */
+    private int[] _journal = new int[64];
+    /** Number of entries of _journal in use. */
+    private int _journalSize;
+    /** The size of _journal at the start of each undoable move. */
+    private int[] _undoMarks = new int[16];
+    /** Number of moves that can currently be undone. */
+    private int _numUndos;
+    /** True iff changes to squares are being added to _journal. */
+    private boolean _journaling;
+    /** Identifies the move most recently begun by addSpot. */
+    private int _stamp;
+    /** For each square, the _stamp of the last move that journaled it. */
+    private int[] _stamps;
+
+    /** Stack of over-full squares awaiting a jump. */
+    private int[] _pending;
+    /** True for each square currently on _pending. */
+    private boolean[] _isPending;
+    /** Number of squares that changed color in the last cascade. */
+    private int _cascadeFlips;
+    /** Number of overflows in the last cascade. */
+    private int _cascadeSteps;
 }
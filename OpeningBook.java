@@ -0,0 +1,328 @@
+package jumpCube;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static jumpCube.Color.*;
+import static jumpCube.GameException.error;
+import static jumpCube.Main.number;
+
+/** A table of precomputed best moves for the opening positions of one
+ *  board size, read from a file that is mapped into memory, so that
+ *  opening a book costs nothing and its pages are shared by every
+ *  player (and process) using it.
+ *
+ *  The file holds a header of four ints (MAGIC, VERSION, the board size,
+ *  and the number of entries) followed by the entries, each the key of
+ *  a position with the player to move (Zobrist.position(board, color))
+ *  as a long and the square number of the best move as a short, sorted
+ *  by key.  All values are big-endian.
+ *
+ *  Usage: java jumpCube.OpeningBook [OPTION VALUE]..., where the options
+ *  are
+ *    --size N      board size (default Defaults.BOARD_SIZE),
+ *    --plies K     include every position reachable in fewer than K
+ *                  plies from the empty board (default 3),
+ *    --depth N     depth of the search of each position (default 8),
+ *    --time MS     time limit of each search (default: none),
+ *    --threads N   positions searched at once (default: one per
+ *                  processor),
+ *    --out FILE    the book to write (default "book-N.bin", for board
+ *                  size N).
+ *  @author Brian Ha
+ */
+final class OpeningBook {
+
+    /** Generate a book as described by ARGS (see the class comment). */
+    public static void main(String[] args) {
+        int size = Defaults.BOARD_SIZE;
+        int plies = 3;
+        int depth = 8;
+        long time = 0;
+        int threads = Defaults.THREADS;
+        String out = null;
+        try {
+            if (args.length % 2 != 0) {
+                throw error("option %s has no value", args[args.length - 1]);
+            }
+            for (int i = 0; i < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                case "--size":
+                    size = number(value, 2);
+                    break;
+                case "--plies":
+                    plies = number(value, 1);
+                    break;
+                case "--depth":
+                    depth = number(value, 1);
+                    if (depth >= 64) {
+                        throw error("depth must be less than 64");
+                    }
+                    break;
+                case "--time":
+                    time = number(value, 1);
+                    break;
+                case "--threads":
+                    threads = number(value, 1);
+                    break;
+                case "--out":
+                    out = value;
+                    break;
+                default:
+                    throw error("unknown option: %s", args[i]);
+                }
+            }
+            if (size * size > Short.MAX_VALUE) {
+                throw error("boards of size %d are too large for a book",
+                            size);
+            }
+        } catch (GameException excp) {
+            System.err.println("Error: " + excp.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (out == null) {
+            out = "book-" + size + ".bin";
+        }
+        long start = System.nanoTime();
+        Map<Long, int[]> lines = openings(size, plies);
+        System.out.printf("Searching %d positions...%n", lines.size());
+        long[] keys = new long[lines.size()];
+        int[] moves = new int[lines.size()];
+        search(size, lines, depth, time, threads, keys, moves);
+        try {
+            write(Paths.get(out), size, keys, moves);
+        } catch (IOException excp) {
+            System.err.println("Error: could not write " + out + ": "
+                               + excp.getMessage());
+            System.exit(1);
+        }
+        System.out.printf("Wrote %d entries to %s in %.1f s%n", keys.length,
+                          out, (System.nanoTime() - start) / 1e9);
+    }
+
+    /** Returns the book in the file at PATH.  Throws IOException if it
+     *  cannot be read, and GameException if it is not a book. */
+    static OpeningBook open(Path path) throws IOException {
+        ByteBuffer data;
+        try (FileChannel file = FileChannel.open(path,
+                                                 StandardOpenOption.READ)) {
+            data = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+        }
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw error("%s is not an opening book", path);
+        }
+        if (data.getInt(4) != VERSION) {
+            throw error("%s has unknown book version %d", path,
+                        data.getInt(4));
+        }
+        int count = data.getInt(12);
+        if (count < 0
+            || data.capacity() != HEADER_SIZE + (long) count * ENTRY_SIZE) {
+            throw error("%s is truncated or corrupt", path);
+        }
+        return new OpeningBook(data, data.getInt(8), count);
+    }
+
+    /** A book for N x N boards whose COUNT entries follow the header in
+     *  DATA. */
+    private OpeningBook(ByteBuffer data, int N, int count) {
+        _data = data;
+        _size = N;
+        _count = count;
+    }
+
+    /** Returns the size of the boards covered by this book. */
+    int size() {
+        return _size;
+    }
+
+    /** Returns the number of positions in this book. */
+    int entries() {
+        return _count;
+    }
+
+    /** Returns the book move for C on BOARD, or -1 if BOARD is not in
+     *  this book (or the entry is not a legal move, which can only happen
+     *  if two positions have the same key). */
+    int lookup(Board board, Color c) {
+        if (board.size() != _size) {
+            return -1;
+        }
+        int move = lookup(Zobrist.position(board, c));
+        if (move < 0 || move >= _size * _size || !board.isLegal(c, move)) {
+            return -1;
+        }
+        return move;
+    }
+
+    /** Returns the move stored under KEY, or -1 if there is none. */
+    int lookup(long key) {
+        int lo = 0, hi = _count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int at = HEADER_SIZE + mid * ENTRY_SIZE;
+            long k = _data.getLong(at);
+            if (k < key) {
+                lo = mid + 1;
+            } else if (k > key) {
+                hi = mid - 1;
+            } else {
+                return _data.getShort(at + Long.BYTES);
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the positions reachable in fewer than PLIES plies from an
+     *  empty N x N board that are not yet won, each as the sequence of
+     *  moves that first reached it, keyed by the position and the player
+     *  to move. */
+    static Map<Long, int[]> openings(int N, int plies) {
+        Map<Long, int[]> result = new LinkedHashMap<>();
+        MutableBoard board = new MutableBoard(N);
+        openings(board, RED, new int[0], plies, result);
+        return result;
+    }
+
+    /** Add to RESULT LINE, which has led to BOARD with C to move, and the
+     *  positions reachable from it in fewer than PLIES - 1 more plies,
+     *  skipping positions already in RESULT. */
+    private static void openings(MutableBoard board, Color c, int[] line,
+                                 int plies, Map<Long, int[]> result) {
+        if (board.getWinner() != null
+            || result.putIfAbsent(Zobrist.position(board, c), line) != null
+            || plies <= 1) {
+            return;
+        }
+        int[] moves = new int[board.size() * board.size()];
+        int count = board.legalMoves(c, moves);
+        for (int k = 0; k < count; k += 1) {
+            int[] next = Arrays.copyOf(line, line.length + 1);
+            next[line.length] = moves[k];
+            board.addSpot(c, moves[k]);
+            openings(board, c.opposite(), next, plies - 1, result);
+            board.undo();
+        }
+    }
+
+    /** Search each of LINES, which are openings of an N x N board keyed by
+     *  position, to DEPTH plies (or for TIME milliseconds, if TIME > 0),
+     *  using THREADS threads, and store the keys and best moves, sorted
+     *  by key, in KEYS and MOVES. */
+    private static void search(int N, Map<Long, int[]> lines, int depth,
+                               long time, int threads,
+                               long[] keys, int[] moves) {
+        ThreadLocal<AI> players = ThreadLocal.withInitial(() -> {
+                AI ai = new AI(Game.headless(), RED);
+                ai.setThreads(1);
+                ai.setDepth(depth);
+                ai.setTimeBudget(time > 0 ? time : Integer.MAX_VALUE);
+                return ai;
+            });
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int[] line : lines.values()) {
+                results.add(pool.submit(() -> bestMove(N, line,
+                                                       players.get())));
+            }
+            int i = 0;
+            for (long key : lines.keySet()) {
+                keys[i] = key;
+                i += 1;
+            }
+            for (i = 0; i < keys.length; i += 1) {
+                moves[i] = results.get(i).get();
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(excp);
+        } catch (ExecutionException excp) {
+            throw new IllegalStateException(excp.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        sort(keys, moves);
+    }
+
+    /** Returns the best move found by AI after LINE is played on an empty
+     *  N x N board. */
+    private static int bestMove(int N, int[] line, AI ai) {
+        MutableBoard board = new MutableBoard(N);
+        Color c = RED;
+        for (int move : line) {
+            board.addSpot(c, move);
+            c = c.opposite();
+        }
+        return ai.findMove(board, c);
+    }
+
+    /** Sort KEYS into increasing order, permuting MOVES in the same
+     *  way. */
+    private static void sort(long[] keys, int[] moves) {
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+        long[] sortedKeys = new long[keys.length];
+        int[] sortedMoves = new int[moves.length];
+        for (int i = 0; i < order.length; i += 1) {
+            sortedKeys[i] = keys[order[i]];
+            sortedMoves[i] = moves[order[i]];
+        }
+        System.arraycopy(sortedKeys, 0, keys, 0, keys.length);
+        System.arraycopy(sortedMoves, 0, moves, 0, moves.length);
+    }
+
+    /** Write a book for N x N boards containing KEYS, which are sorted,
+     *  and their MOVES to the file at PATH. */
+    static void write(Path path, int N, long[] keys, int[] moves)
+        throws IOException {
+        try (OutputStream file = Files.newOutputStream(path);
+             DataOutputStream out =
+                 new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(N);
+            out.writeInt(keys.length);
+            for (int i = 0; i < keys.length; i += 1) {
+                out.writeLong(keys[i]);
+                out.writeShort(moves[i]);
+            }
+        }
+    }
+
+    /** First int of every book file ("JCBK"). */
+    static final int MAGIC = 0x4a43424b;
+    /** Version of the book format. */
+    static final int VERSION = 1;
+    /** Bytes in the header and in each entry. */
+    private static final int HEADER_SIZE = 16, ENTRY_SIZE = 10;
+
+    /** The contents of the book file. */
+    private final ByteBuffer _data;
+    /** Size of the boards in this book. */
+    private final int _size;
+    /** Number of entries. */
+    private final int _count;
+}
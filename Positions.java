@@ -0,0 +1,272 @@
+package jumpCube;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+
+import static jumpCube.Color.*;
+import static jumpCube.GameException.error;
+
+/** Compact encodings of positions (the contents of a board and its
+ *  number of moves), as text and as bytes, for storing and passing
+ *  positions around.
+ *
+ *  The text form is SIZE:MOVES:ROWS, where ROWS are the rows from 1 to
+ *  SIZE separated by "/", and each row lists its squares from column 1
+ *  as in a dump: "-" for an empty square, and otherwise its spots and
+ *  "r" or "b" for its color.  For example, "3:2:1r2b-/---/--1r" has a
+ *  red square with 1 spot at 1:1, a blue square with 2 spots at 1:2,
+ *  and a red square with 1 spot at 3:3.
+ *
+ *  The binary form is SIZE and MOVES as big-endian ints followed by the
+ *  squares in order, two to a byte (the first in the high half), each
+ *  as 0 if empty and otherwise its spots, plus 8 if it is blue.
+ *
+ *  Positions are also read from dumps (see Board.dump), which hold the
+ *  contents of the board but not its number of moves.
+ *  @author Brian Ha
+ */
+final class Positions {
+
+    /** Not instantiable. */
+    private Positions() {
+    }
+
+    /** Returns the text form of the position on BOARD. */
+    static String toText(Board board) {
+        int N = board.size();
+        StringBuilder text = new StringBuilder(2 * N * N + 16);
+        text.append(N).append(':').append(board.numMoves()).append(':');
+        for (int n = 0; n < N * N; n += 1) {
+            if (n > 0 && n % N == 0) {
+                text.append('/');
+            }
+            Color color = board.color(n);
+            if (color == WHITE) {
+                text.append('-');
+            } else {
+                text.append(board.spots(n)).append(color == RED ? 'r' : 'b');
+            }
+        }
+        return text.toString();
+    }
+
+    /** Set BOARD to the position whose text form is TEXT.  Throws
+     *  GameException if TEXT is not the text form of a position. */
+    static void fromText(String text, Board board) {
+        int first = text.indexOf(':');
+        int second = text.indexOf(':', first + 1);
+        if (first < 0 || second < 0) {
+            throw error("bad position: %s", text);
+        }
+        int N = number(text, 0, first);
+        int moves = number(text, first + 1, second);
+        if (N < 1 || (long) N * (N + 1) - 1 > text.length() - second - 1) {
+            throw error("bad position: %s", text);
+        }
+        board.clear(N);
+        int i = second + 1;
+        for (int r = 0; r < N; r += 1) {
+            if (r > 0) {
+                if (i == text.length() || text.charAt(i) != '/') {
+                    throw error("position has too few rows: %s", text);
+                }
+                i += 1;
+            }
+            int c;
+            for (c = 0; i < text.length() && text.charAt(i) != '/'; c += 1) {
+                char ch = text.charAt(i);
+                if (c == N) {
+                    throw error("row %d of position is too long: %s",
+                                r + 1, text);
+                } else if (ch == '-') {
+                    i += 1;
+                } else if (Character.isDigit(ch) && i + 1 < text.length()
+                           && (text.charAt(i + 1) == 'r'
+                               || text.charAt(i + 1) == 'b')) {
+                    board.set(r * N + c, ch - '0',
+                              text.charAt(i + 1) == 'r' ? RED : BLUE);
+                    i += 2;
+                } else {
+                    throw error("bad square in position: %s", text);
+                }
+            }
+            if (c != N) {
+                throw error("row %d of position is too short: %s",
+                            r + 1, text);
+            }
+        }
+        if (i != text.length()) {
+            throw error("position has too many rows: %s", text);
+        }
+        board.setMoves(moves);
+    }
+
+    /** Returns the binary form of the position on BOARD. */
+    static byte[] toBytes(Board board) {
+        int N = board.size();
+        ByteBuffer bytes = ByteBuffer.allocate(HEADER_SIZE + (N * N + 1) / 2);
+        bytes.putInt(N).putInt(board.numMoves());
+        for (int n = 0; n < N * N; n += 2) {
+            int high = nibble(board, n);
+            int low = n + 1 < N * N ? nibble(board, n + 1) : 0;
+            bytes.put((byte) (high << 4 | low));
+        }
+        return bytes.array();
+    }
+
+    /** Set BOARD to the position whose binary form is BYTES.  Throws
+     *  GameException if BYTES is not the binary form of a position. */
+    static void fromBytes(byte[] bytes, Board board) {
+        ByteBuffer data = ByteBuffer.wrap(bytes);
+        int N, moves;
+        try {
+            N = data.getInt();
+            moves = data.getInt();
+        } catch (BufferUnderflowException excp) {
+            throw error("truncated position");
+        }
+        if (N < 1 || moves < 0
+            || bytes.length != HEADER_SIZE + ((long) N * N + 1) / 2) {
+            throw error("bad binary position");
+        }
+        board.clear(N);
+        for (int n = 0; n < N * N; n += 1) {
+            int b = bytes[HEADER_SIZE + n / 2];
+            int square = (n % 2 == 0 ? b >> 4 : b) & 0xf;
+            if (square != 0) {
+                board.set(n, square & 7, square < 8 ? RED : BLUE);
+            }
+        }
+        board.setMoves(moves);
+    }
+
+    /** Set BOARD to the position dumped in the next lines of INPUT, a
+     *  line of "===", a line for each row, and another line of "===",
+     *  leaving its number of moves 0.  The size is that of the first
+     *  row.  Throws GameException if the lines are not a dump, after
+     *  reading through the last line of the dump if it is there. */
+    static void readDump(BufferedReader input, Board board)
+        throws IOException {
+        if (!dumpLine(input).trim().equals(DUMP_EDGE)) {
+            throw error("a dump must start with '%s'", DUMP_EDGE);
+        }
+        String line = dumpLine(input);
+        int N = 0;
+        for (int i = 0; i < line.length(); i += 1) {
+            if (!Character.isWhitespace(line.charAt(i))
+                && (i == 0 || Character.isWhitespace(line.charAt(i - 1)))) {
+                N += 1;
+            }
+        }
+        if (N == 0 || line.trim().equals(DUMP_EDGE)) {
+            throw error("the first row of a dump is empty");
+        }
+        board.clear(N);
+        GameException failure = null;
+        for (int r = 0; r < N; r += 1) {
+            if (r > 0) {
+                line = dumpLine(input);
+                if (line.trim().equals(DUMP_EDGE)) {
+                    throw error("a dump of a %dx%d board has only %d rows",
+                                N, N, r);
+                }
+            }
+            if (failure == null) {
+                try {
+                    readDumpRow(line, r, board);
+                } catch (GameException excp) {
+                    failure = excp;
+                }
+            }
+        }
+        if (!dumpLine(input).trim().equals(DUMP_EDGE)) {
+            throw error("a dump of a %dx%d board must end with '%s' "
+                        + "after %d rows", N, N, DUMP_EDGE, N);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /** Set row #R (from 0) of BOARD from its dump, LINE. */
+    private static void readDumpRow(String line, int r, Board board) {
+        int N = board.size();
+        int c = 0;
+        int i = 0;
+        int length = line.length();
+        while (true) {
+            while (i < length && Character.isWhitespace(line.charAt(i))) {
+                i += 1;
+            }
+            if (i == length) {
+                break;
+            }
+            if (c == N) {
+                throw error("row %d of the dump has more than %d squares",
+                            r + 1, N);
+            }
+            if (line.startsWith("--", i)) {
+                i += 2;
+            } else {
+                int spots = 0;
+                int start = i;
+                while (i < length && Character.isDigit(line.charAt(i))
+                       && i - start < 2) {
+                    spots = 10 * spots + line.charAt(i) - '0';
+                    i += 1;
+                }
+                char color = i < length
+                    ? Character.toLowerCase(line.charAt(i)) : ' ';
+                if (i == start || (color != 'r' && color != 'b')) {
+                    throw error("bad square in row %d of the dump: %s",
+                                r + 1, line.trim());
+                }
+                i += 1;
+                board.set(r * N + c, spots, color == 'r' ? RED : BLUE);
+            }
+            if (i < length && !Character.isWhitespace(line.charAt(i))) {
+                throw error("bad square in row %d of the dump: %s",
+                            r + 1, line.trim());
+            }
+            c += 1;
+        }
+        if (c != N) {
+            throw error("row %d of the dump has %d squares, not %d",
+                        r + 1, c, N);
+        }
+    }
+
+    /** Returns the next line of INPUT, which must exist. */
+    private static String dumpLine(BufferedReader input) throws IOException {
+        String line = input.readLine();
+        if (line == null) {
+            throw error("incomplete dump");
+        }
+        return line;
+    }
+
+    /** Returns the binary form of square #N of BOARD. */
+    private static int nibble(Board board, int n) {
+        Color color = board.color(n);
+        if (color == WHITE) {
+            return 0;
+        }
+        return board.spots(n) + (color == BLUE ? 8 : 0);
+    }
+
+    /** Returns the non-negative number in TEXT[START .. END). */
+    private static int number(String text, int start, int end) {
+        try {
+            return Main.number(text.substring(start, end), 0);
+        } catch (GameException excp) {
+            throw error("bad position: %s", text);
+        }
+    }
+
+    /** Bytes before the squares in the binary form. */
+    private static final int HEADER_SIZE = 8;
+    /** The first and last lines of a dump. */
+    private static final String DUMP_EDGE = "===";
+}
@@ -0,0 +1,207 @@
+package jumpCube;
+
+import java.util.Arrays;
+
+/** A proof-number search that tries to prove that the player to move in
+ *  a position can force a win, or that the opponent can.  Since every
+ *  move adds a spot and a board can hold only so many before the game
+ *  ends, every game is finite, so a position that is not a forced win
+ *  for the player to move is a forced loss.
+ *
+ *  The search tree is kept in flat arrays of bounded size, which are
+ *  allocated once and reused from one solve to the next.  Node 0 is the
+ *  root; the children of an expanded node are stored together, starting
+ *  at _first[node].  Unexpanded nodes start with proof and disproof
+ *  numbers based on the number of moves available in them, so that
+ *  positions where the defender has few replies are tried first.
+ *  @author Brian Ha
+ */
+class ProofNumberSolver {
+
+    /** Results of solve. */
+    static final int UNKNOWN = 0, WIN = 1, LOSS = 2;
+
+    /** A solver whose search trees have at most MAXNODES nodes. */
+    ProofNumberSolver(int maxNodes) {
+        assert maxNodes >= 1;
+        _pn = new int[maxNodes];
+        _dn = new int[maxNodes];
+        _first = new int[maxNodes];
+        _count = new int[maxNodes];
+        _move = new int[maxNodes];
+        _path = new int[64];
+    }
+
+    /** Try to decide whether C, who is to move on BOARD, can force a win,
+     *  stopping when my tree is full or at DEADLINE (a value of
+     *  System.nanoTime).  Returns WIN, LOSS, or UNKNOWN.  After a WIN,
+     *  bestMove() is a winning move.  BOARD must not be won already; it
+     *  is used for the search and left as it was. */
+    int solve(Board board, Color c, long deadline) {
+        int N = board.size();
+        if (_moves == null || _moves.length < N * N) {
+            _moves = new int[N * N];
+            _replies = new int[N * N];
+        }
+        _nodes = 1;
+        _first[0] = -1;
+        _pn[0] = _dn[0] = 1;
+        _bestMove = -1;
+        for (int iter = 0; _pn[0] != 0 && _dn[0] != 0; iter += 1) {
+            if (iter % CLOCK_INTERVAL == 0 && iter > 0
+                && System.nanoTime() >= deadline) {
+                break;
+            }
+            int depth = 0;
+            int node = 0;
+            Color player = c;
+            while (_first[node] >= 0) {
+                push(depth, node);
+                node = select(node, player == c);
+                board.addSpot(player, _move[node]);
+                player = player.opposite();
+                depth += 1;
+            }
+            boolean expanded = expand(node, board, player, c);
+            update(node, player == c);
+            for (int d = depth - 1; d >= 0; d -= 1) {
+                board.undo();
+                player = player.opposite();
+                update(_path[d], player == c);
+            }
+            if (!expanded) {
+                break;
+            }
+        }
+        if (_pn[0] == 0) {
+            for (int k = _first[0]; k < _first[0] + _count[0]; k += 1) {
+                if (_pn[k] == 0) {
+                    _bestMove = _move[k];
+                    break;
+                }
+            }
+            return WIN;
+        } else if (_dn[0] == 0) {
+            return LOSS;
+        }
+        return UNKNOWN;
+    }
+
+    /** Returns a winning move found by the last solve that returned WIN,
+     *  or -1. */
+    int bestMove() {
+        return _bestMove;
+    }
+
+    /** Returns the number of nodes in the tree of the last solve. */
+    int nodes() {
+        return _nodes;
+    }
+
+    /** Returns the child of NODE to explore next: the one with the
+     *  smallest proof number if ATTACKING (it is the root player's
+     *  move), and otherwise the one with the smallest disproof number. */
+    private int select(int node, boolean attacking) {
+        int[] numbers = attacking ? _pn : _dn;
+        int best = _first[node];
+        for (int k = best + 1; k < _first[node] + _count[node]; k += 1) {
+            if (numbers[k] < numbers[best]) {
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    /** Add the children of NODE, which is the position on BOARD with
+     *  PLAYER to move, to the tree, valuing them for the root player
+     *  ROOT.  Returns false, leaving NODE unexpanded, if they do not
+     *  fit. */
+    private boolean expand(int node, Board board, Color player,
+                           Color root) {
+        int count = board.legalMoves(player, _moves);
+        if (_nodes + count > _pn.length) {
+            return false;
+        }
+        int first = _nodes;
+        Color next = player.opposite();
+        for (int k = 0; k < count; k += 1) {
+            int child = first + k;
+            _move[child] = _moves[k];
+            _first[child] = -1;
+            _count[child] = 0;
+            board.addSpot(player, _moves[k]);
+            Color winner = board.getWinner();
+            if (winner == root) {
+                _pn[child] = 0;
+                _dn[child] = INFINITE;
+            } else if (winner != null) {
+                _pn[child] = INFINITE;
+                _dn[child] = 0;
+            } else if (next == root) {
+                _pn[child] = 1;
+                _dn[child] = board.legalMoves(next, _replies);
+            } else {
+                _pn[child] = board.legalMoves(next, _replies);
+                _dn[child] = 1;
+            }
+            board.undo();
+        }
+        _first[node] = first;
+        _count[node] = count;
+        _nodes += count;
+        return true;
+    }
+
+    /** Recompute the proof and disproof numbers of NODE, if it has been
+     *  expanded, from those of its children.  ATTACKING is true iff it is
+     *  the root player's move at NODE. */
+    private void update(int node, boolean attacking) {
+        if (_first[node] < 0) {
+            return;
+        }
+        int[] min = attacking ? _pn : _dn;
+        int[] sum = attacking ? _dn : _pn;
+        int least = INFINITE;
+        long total = 0;
+        for (int k = _first[node]; k < _first[node] + _count[node]; k += 1) {
+            least = Math.min(least, min[k]);
+            total += sum[k];
+        }
+        min[node] = least;
+        sum[node] = (int) Math.min(total, INFINITE);
+    }
+
+    /** Record NODE as the node at DEPTH on the current path. */
+    private void push(int depth, int node) {
+        if (depth == _path.length) {
+            _path = Arrays.copyOf(_path, 2 * depth);
+        }
+        _path[depth] = node;
+    }
+
+    /** A proof or disproof number meaning "impossible". */
+    private static final int INFINITE = Integer.MAX_VALUE / 2;
+    /** Number of expansions between checks of the clock. */
+    private static final int CLOCK_INTERVAL = 256;
+
+    /** Proof numbers (the number of positions that must still be won to
+     *  prove a win for the root player) of the nodes. */
+    private final int[] _pn;
+    /** Disproof numbers (likewise, to prove a loss) of the nodes. */
+    private final int[] _dn;
+    /** Index of the first child of each node, or -1 if it has not been
+     *  expanded. */
+    private final int[] _first;
+    /** Number of children of each expanded node. */
+    private final int[] _count;
+    /** The move that leads to each node from its parent. */
+    private final int[] _move;
+    /** The nodes on the path from the root to the node being expanded. */
+    private int[] _path;
+    /** Scratch arrays for move generation. */
+    private int[] _moves, _replies;
+    /** Number of nodes in use. */
+    private int _nodes;
+    /** Result of the last solve. */
+    private int _bestMove;
+}
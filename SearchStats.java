@@ -0,0 +1,131 @@
+package jumpCube;
+
+/** Counts of the work done by the AI in choosing one move.  Each search
+ *  thread counts into its own SearchStats, so counting needs no
+ *  synchronization; the counts are summed when the search ends.
+ *  Counting is always on: it costs less than the variation in search
+ *  speed from one run to the next.
+ *  @author Brian Ha
+ */
+class SearchStats {
+
+    /** Set all counts to 0. */
+    void clear() {
+        _nodes = _leaves = _cutoffs = _tableHits = _cascadeSteps = 0;
+        _depth = 0;
+        _nanos = 0;
+    }
+
+    /** Add the counts in OTHER to mine. */
+    void add(SearchStats other) {
+        _nodes += other._nodes;
+        _leaves += other._leaves;
+        _cutoffs += other._cutoffs;
+        _tableHits += other._tableHits;
+        _cascadeSteps += other._cascadeSteps;
+    }
+
+    /** Record a visit to a position. */
+    void countNode() {
+        _nodes += 1;
+    }
+
+    /** Record visits to COUNT positions at once. */
+    void countNodes(long count) {
+        _nodes += count;
+    }
+
+    /** Record a static evaluation of a position. */
+    void countLeaf() {
+        _leaves += 1;
+    }
+
+    /** Record a search that was cut off by its bounds. */
+    void countCutoff() {
+        _cutoffs += 1;
+    }
+
+    /** Record a position found in the transposition table. */
+    void countTableHit() {
+        _tableHits += 1;
+    }
+
+    /** Record STEPS overflows in the cascade of a move. */
+    void countCascade(int steps) {
+        _cascadeSteps += steps;
+    }
+
+    /** Record that the deepest completed search had DEPTH plies, and that
+     *  the search took NANOS nanoseconds. */
+    void finish(int depth, long nanos) {
+        _depth = depth;
+        _nanos = nanos;
+    }
+
+    /** Returns the number of positions visited. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Returns the number of static evaluations. */
+    long leaves() {
+        return _leaves;
+    }
+
+    /** Returns the number of cutoffs. */
+    long cutoffs() {
+        return _cutoffs;
+    }
+
+    /** Returns the number of transposition table hits. */
+    long tableHits() {
+        return _tableHits;
+    }
+
+    /** Returns the total number of cascade overflows. */
+    long cascadeSteps() {
+        return _cascadeSteps;
+    }
+
+    /** Returns the depth of the deepest completed search. */
+    int depth() {
+        return _depth;
+    }
+
+    /** Returns the time taken, in nanoseconds. */
+    long nanos() {
+        return _nanos;
+    }
+
+    /** Returns the number of positions visited per second. */
+    long nodesPerSecond() {
+        if (_nanos == 0) {
+            return 0;
+        }
+        return (long) (_nodes * 1e9 / _nanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("depth %d, %d nodes (%d leaves), %d cutoffs,"
+                             + " %d table hits, %d cascade steps,"
+                             + " %.3f s, %d nodes/s",
+                             _depth, _nodes, _leaves, _cutoffs, _tableHits,
+                             _cascadeSteps, _nanos / 1e9, nodesPerSecond());
+    }
+
+    /** Positions visited. */
+    private long _nodes;
+    /** Static evaluations. */
+    private long _leaves;
+    /** Cutoffs. */
+    private long _cutoffs;
+    /** Transposition table hits. */
+    private long _tableHits;
+    /** Cascade overflows. */
+    private long _cascadeSteps;
+    /** Deepest completed search. */
+    private int _depth;
+    /** Elapsed time in nanoseconds. */
+    private long _nanos;
+}
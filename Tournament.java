@@ -0,0 +1,332 @@
+package jumpCube;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static jumpCube.Color.*;
+import static jumpCube.GameException.error;
+import static jumpCube.Main.number;
+
+/** A headless runner of matches between two automated players, A and B,
+ *  for measuring changes in playing strength.  Games are played in
+ *  parallel, each on one thread, and with colors alternating: games 2k
+ *  and 2k+1 start from the same randomly chosen opening, with A playing
+ *  red in the first and blue in the second.  Reports the result, the
+ *  difference in Elo rating between A and B with its 95% confidence
+ *  interval, and the rate of play.
+ *
+ *  Usage: java jumpCube.Tournament [OPTION VALUE]..., where the options
+ *  are
+ *    --a SPEC, --b SPEC   the players (default: "ai"),
+ *    --games N            number of games (default 1000),
+ *    --size N             board size (default Defaults.BOARD_SIZE),
+ *    --opening N          random moves before the players take over
+ *                         (default 4),
+ *    --seed N             seed for the openings (default 0),
+ *    --threads N          games played at once (default: one per
+ *                         processor).
+ *  A SPEC is "ai" or "mcts" followed by any of ",depth=N" (ai only),
+ *  ",time=MS", ",playouts=N" (mcts only), and ",eval=S/P/F/T/B" (the
+ *  weights of an Evaluator), as in "ai,depth=3,time=100".
+ *  @author Brian Ha
+ */
+public class Tournament {
+
+    /** Run a tournament as described by ARGS (see the class comment). */
+    public static void main(String[] args) {
+        Tournament tournament;
+        try {
+            tournament = new Tournament(args);
+        } catch (GameException excp) {
+            System.err.println("Error: " + excp.getMessage());
+            System.exit(1);
+            return;
+        }
+        tournament.run();
+        System.out.println(tournament.report());
+    }
+
+    /** A tournament configured by the options in ARGS. */
+    Tournament(String[] args) {
+        _specA = new PlayerSpec("ai");
+        _specB = new PlayerSpec("ai");
+        _games = 1000;
+        _size = Defaults.BOARD_SIZE;
+        _opening = 4;
+        _threads = Defaults.THREADS;
+        if (args.length % 2 != 0) {
+            throw error("option %s has no value", args[args.length - 1]);
+        }
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+            case "--a":
+                _specA = new PlayerSpec(value);
+                break;
+            case "--b":
+                _specB = new PlayerSpec(value);
+                break;
+            case "--games":
+                _games = number(value, 1);
+                break;
+            case "--size":
+                _size = number(value, 2);
+                break;
+            case "--opening":
+                _opening = number(value, 0);
+                break;
+            case "--seed":
+                _seed = number(value, Integer.MIN_VALUE);
+                break;
+            case "--threads":
+                _threads = number(value, 1);
+                break;
+            default:
+                throw error("unknown option: %s", args[i]);
+            }
+        }
+    }
+
+    /** Play all the games, recording their results. */
+    void run() {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(_threads);
+        try {
+            List<Future<Color>> results = new ArrayList<>();
+            for (int g = 0; g < _games; g += 1) {
+                final int game = g;
+                results.add(pool.submit(() -> play(game)));
+            }
+            for (int g = 0; g < _games; g += 1) {
+                Color winner = results.get(g).get();
+                Color colorA = g % 2 == 0 ? RED : BLUE;
+                if (winner == null) {
+                    _draws += 1;
+                } else if (winner == colorA) {
+                    _winsA += 1;
+                } else {
+                    _winsB += 1;
+                }
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException excp) {
+            throw new IllegalStateException(excp.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        _nanos = System.nanoTime() - start;
+    }
+
+    /** Returns a description of the results of run(). */
+    String report() {
+        int n = _winsA + _winsB + _draws;
+        double score = (_winsA + 0.5 * _draws) / n;
+        double deviation = 0;
+        if (n > 1) {
+            double sumSquares = _winsA * (1 - score) * (1 - score)
+                + _winsB * score * score
+                + _draws * (0.5 - score) * (0.5 - score);
+            deviation = Math.sqrt(sumSquares / (n - 1) / n);
+        }
+        double elo = elo(score);
+        double low = elo(score - Z95 * deviation);
+        double high = elo(score + Z95 * deviation);
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("A: %s%nB: %s%n", _specA, _specB));
+        out.append(String.format("%d games on %dx%d, %d opening moves, "
+                                 + "seed %d%n",
+                                 n, _size, _size, _opening, _seed));
+        out.append(String.format("A wins %d, B wins %d, draws %d "
+                                 + "(A scores %.1f%%)%n",
+                                 _winsA, _winsB, _draws, 100 * score));
+        out.append(String.format("Elo difference %+.1f "
+                                 + "(95%% confidence: %+.1f to %+.1f)%n",
+                                 elo, low, high));
+        out.append(String.format("%.2f games/s with %d threads",
+                                 n / (_nanos / 1e9), _threads));
+        return out.toString();
+    }
+
+    /** Play game number G, returning the winner, or null if it is
+     *  unfinished after MAX_MOVES_PER_SQUARE moves per square. */
+    private Color play(int g) {
+        Game game = Game.headless();
+        Board board = game.getMBoard();
+        board.clear(_size);
+        game.setSeed(_seed + g / 2);
+        for (int k = 0; k < _opening && board.getWinner() == null; k += 1) {
+            Color c = board.whoseMove();
+            int[] moves = new int[_size * _size];
+            int move = moves[game.randInt(board.legalMoves(c, moves))];
+            game.makeMove(board.row(move), board.col(move));
+        }
+        Player red, blue;
+        if (g % 2 == 0) {
+            red = _specA.player(game, RED);
+            blue = _specB.player(game, BLUE);
+        } else {
+            red = _specB.player(game, RED);
+            blue = _specA.player(game, BLUE);
+        }
+        int limit = MAX_MOVES_PER_SQUARE * _size * _size;
+        for (int k = 0; k < limit && board.getWinner() == null; k += 1) {
+            if (board.whoseMove() == RED) {
+                red.makeMove();
+            } else {
+                blue.makeMove();
+            }
+        }
+        return board.getWinner();
+    }
+
+    /** A player type and its options, as described by a SPEC (see the
+     *  class comment). */
+    private static class PlayerSpec {
+
+        /** The player described by SPEC.  Throws GameException if SPEC
+         *  is malformed or has options that do not apply to its type of
+         *  player. */
+        PlayerSpec(String spec) {
+            _spec = spec;
+            String[] parts = spec.split(",");
+            _type = parts[0];
+            if (!_type.equals("ai") && !_type.equals("mcts")) {
+                throw error("unknown player type: %s", _type);
+            }
+            for (int i = 1; i < parts.length; i += 1) {
+                String[] option = parts[i].split("=", 2);
+                if (option.length != 2) {
+                    throw error("bad player option: %s", parts[i]);
+                }
+                switch (option[0]) {
+                case "depth":
+                    _depth = number(option[1], 1);
+                    if (_depth >= 64) {
+                        throw error("depth must be less than 64");
+                    }
+                    break;
+                case "time":
+                    _time = number(option[1], 0);
+                    break;
+                case "playouts":
+                    _playouts = number(option[1], 0);
+                    break;
+                case "eval":
+                    _evaluator = evaluator(option[1]);
+                    break;
+                default:
+                    throw error("bad player option: %s", parts[i]);
+                }
+            }
+            if (_type.equals("ai") && _playouts >= 0) {
+                throw error("playouts do not apply to ai players: %s",
+                            spec);
+            }
+            if (_type.equals("mcts") && _depth > 0) {
+                throw error("depth does not apply to mcts players: %s",
+                            spec);
+            }
+        }
+
+        /** Returns a new player of GAME playing COLOR as I describe,
+         *  searching with one thread. */
+        Player player(Game game, Color color) {
+            if (_type.equals("ai")) {
+                AI ai = new AI(game, color);
+                ai.setThreads(1);
+                if (_depth > 0) {
+                    ai.setDepth(_depth);
+                }
+                if (_time >= 0) {
+                    ai.setTimeBudget(_time);
+                }
+                if (_evaluator != null) {
+                    ai.setEvaluator(_evaluator);
+                }
+                return ai;
+            }
+            MonteCarloPlayer mcts = new MonteCarloPlayer(game, color);
+            mcts.setThreads(1);
+            mcts.setNodeLimit(MCTS_NODES);
+            if (_time >= 0) {
+                mcts.setTimeBudget(_time);
+            }
+            if (_playouts >= 0) {
+                mcts.setPlayouts(_playouts);
+            }
+            if (_evaluator != null) {
+                mcts.setEvaluator(_evaluator);
+            }
+            return mcts;
+        }
+
+        @Override
+        public String toString() {
+            return _spec;
+        }
+
+        /** The description I was made from. */
+        private final String _spec;
+        /** The type of player, "ai" or "mcts". */
+        private final String _type;
+        /** Search depth (ai only; 0 for the default). */
+        private int _depth;
+        /** Time budget per move in milliseconds (-1 for the default). */
+        private long _time = -1;
+        /** Playouts per move (mcts only; -1 for the default). */
+        private int _playouts = -1;
+        /** Evaluation function (null for the default). */
+        private Evaluator _evaluator;
+    }
+
+    /** Returns the Evaluator whose five weights are separated by slashes
+     *  in WEIGHTS. */
+    private static Evaluator evaluator(String weights) {
+        String[] w = weights.split("/");
+        if (w.length != 5) {
+            throw error("an evaluator needs 5 weights: %s", weights);
+        }
+        int min = Integer.MIN_VALUE;
+        return new Evaluator(number(w[0], min), number(w[1], min),
+                             number(w[2], min), number(w[3], min),
+                             number(w[4], min));
+    }
+
+    /** Returns the difference in Elo rating that corresponds to an
+     *  expected SCORE (between 0 and 1). */
+    private static double elo(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        } else if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return 400 * Math.log10(score / (1 - score));
+    }
+
+    /** Number of standard deviations in a 95% confidence interval. */
+    private static final double Z95 = 1.96;
+    /** Games still unfinished after this many moves per square are
+     *  draws. */
+    private static final int MAX_MOVES_PER_SQUARE = 20;
+    /** Limit on the search tree of a MonteCarloPlayer; smaller than the
+     *  default since many play at once. */
+    private static final int MCTS_NODES = 1 << 18;
+
+    /** Descriptions of players A and B. */
+    private PlayerSpec _specA, _specB;
+    /** Number of games, board size, and number of opening moves. */
+    private int _games, _size, _opening;
+    /** Seed of the first opening. */
+    private long _seed;
+    /** Number of games played at once. */
+    private int _threads;
+    /** Results of the last run. */
+    private int _winsA, _winsB, _draws;
+    /** Duration of the last run, in nanoseconds. */
+    private long _nanos;
+}
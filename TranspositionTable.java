@@ -0,0 +1,107 @@
+package jumpCube;
+
+import java.util.Arrays;
+
+/** A fixed-size table of search results, indexed by position key.  Each
+ *  slot holds the result for one position; a new result replaces the old
+ *  one unless the old one is for the same position and a deeper search.
+ *  An entry's depth, bound type, score, and best move are packed into one
+ *  long, and the slot's key is stored XORed with it, so that threads may
+ *  share a table without locking: an entry torn by a concurrent store
+ *  simply fails to match its key.
+ *  @author Brian Ha
+ */
+class TranspositionTable {
+
+    /** Bound type: the stored score is the exact value. */
+    static final int EXACT = 0;
+    /** Bound type: the true value is at least the stored score. */
+    static final int LOWER = 1;
+    /** Bound type: the true value is at most the stored score. */
+    static final int UPPER = 2;
+
+    /** The result of probe for a position with no entry. */
+    static final long MISSING = 0;
+
+    /** A table with 2**BITS slots. */
+    TranspositionTable(int bits) {
+        int size = 1 << bits;
+        _mask = size - 1;
+        _keys = new long[size];
+        _entries = new long[size];
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        Arrays.fill(_keys, 0);
+        Arrays.fill(_entries, MISSING);
+    }
+
+    /** Returns the entry for the position with KEY, or MISSING if there
+     *  is none. */
+    long probe(long key) {
+        int slot = (int) key & _mask;
+        long entry = _entries[slot];
+        if (entry != MISSING && (_keys[slot] ^ entry) == key) {
+            return entry;
+        }
+        return MISSING;
+    }
+
+    /** Returns the search depth of ENTRY. */
+    static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    /** Returns the bound type of ENTRY. */
+    static int bound(long entry) {
+        return (int) (entry & BOUND_MASK) - 1;
+    }
+
+    /** Returns the score of ENTRY. */
+    static int score(long entry) {
+        return (int) (entry >> SCORE_SHIFT);
+    }
+
+    /** Returns the best move (a square number, or -1) of ENTRY. */
+    static int move(long entry) {
+        return (int) ((entry >>> MOVE_SHIFT) & MOVE_MASK) - 1;
+    }
+
+    /** Record that a search of DEPTH plies from the position with KEY
+     *  found SCORE, of type BOUND, with best move MOVE (-1 if none). */
+    void store(long key, int depth, int bound, int score, int move) {
+        int slot = (int) key & _mask;
+        long old = probe(key);
+        if (old != MISSING && depth(old) > depth) {
+            return;
+        }
+        long entry = ((long) score << SCORE_SHIFT)
+            | ((long) (move + 1) << MOVE_SHIFT)
+            | ((long) Math.min(depth, DEPTH_MASK) << DEPTH_SHIFT)
+            | (bound + 1);
+        _entries[slot] = entry;
+        _keys[slot] = key ^ entry;
+    }
+
+    /** Position of the score in an entry. */
+    private static final int SCORE_SHIFT = 32;
+    /** Position of the move (plus 1) in an entry. */
+    private static final int MOVE_SHIFT = 8;
+    /** Mask for the move field of an entry. */
+    private static final long MOVE_MASK = 0xffffff;
+    /** Position of the depth in an entry. */
+    private static final int DEPTH_SHIFT = 2;
+    /** Mask for the depth field of an entry. */
+    private static final int DEPTH_MASK = 0x3f;
+    /** Mask for the bound type (plus 1) of an entry; never 0 in a
+     *  stored entry. */
+    private static final long BOUND_MASK = 0x3;
+
+    /** Mask selecting a slot number from a key. */
+    private final int _mask;
+    /** Position key of each slot, XORed with its entry. */
+    private final long[] _keys;
+    /** Packed entry of each slot. */
+    private final long[] _entries;
+}
@@ -0,0 +1,49 @@
+package jumpCube;
+
+/** Keys for Zobrist hashing of jumpCube positions.  The key of a position
+ *  is the exclusive or of the keys of its squares, so it can be updated
+ *  as individual squares change.  Keys are fixed functions of their
+ *  arguments, so they are the same from one run to the next.
+ *  @author Brian Ha
+ */
+class Zobrist {
+
+    /** Returns the key for square #N holding SPOTS spots of the Color
+     *  with ordinal CLR.  An empty square has key 0. */
+    static long square(int n, int clr, int spots) {
+        if (spots == 0) {
+            return 0;
+        }
+        return mix(((long) n << 16) | (clr << 8) | spots);
+    }
+
+    /** Returns the key of all the squares of BOARD. */
+    static long position(Board board) {
+        long key = 0;
+        int n = board.size();
+        for (int i = 0; i < n * n; i++) {
+            key ^= square(i, board.color(i).ordinal(), board.spots(i));
+        }
+        return key;
+    }
+
+    /** Returns the key of BOARD with PLAYER to move. */
+    static long position(Board board, Color player) {
+        if (player == Color.BLUE) {
+            return board.key() ^ BLUE_TO_MOVE;
+        } else {
+            return board.key();
+        }
+    }
+
+    /** Returns a well-scrambled function of X (the SplitMix64 finalizer). */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+
+    /** Key included when blue is the player to move. */
+    static final long BLUE_TO_MOVE = mix(-1L);
+
+}